@@ -36,4 +36,6 @@ object Versions {
     const val hamcrest = "2.2"
     const val commonsCompress = "1.26.0"
     const val xz = "1.9"
+    const val jmh = "1.37"
+    const val jmhPlugin = "0.7.3"
 }
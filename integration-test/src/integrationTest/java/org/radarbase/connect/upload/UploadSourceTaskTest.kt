@@ -103,7 +103,7 @@ class UploadSourceTaskTest {
     }
 
     @Test
-    @Timeout(value = 8, unit = TimeUnit.SECONDS)
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
     @DisplayName("Should be able to convert a record with ZIP file")
     fun successfulZipFileConversion() {
         val sourceType = "altoida"
@@ -128,7 +128,12 @@ class UploadSourceTaskTest {
 
         sourceRecords.forEach { sourceTask.commitRecord(it, null) }
 
-        val metadataAfterCommit = retrieveRecordMetadata(accessToken, createdRecord.id!!)
+        // statuses are sent to the backend asynchronously
+        var metadataAfterCommit = retrieveRecordMetadata(accessToken, createdRecord.id!!)
+        while (metadataAfterCommit.status != "SUCCEEDED") {
+            Thread.sleep(100L)
+            metadataAfterCommit = retrieveRecordMetadata(accessToken, createdRecord.id!!)
+        }
         assertNotNull(metadataAfterCommit)
         assertEquals("SUCCEEDED", metadataAfterCommit.status)
     }
@@ -1,5 +1,6 @@
 plugins {
     id("org.radarbase.radar-kotlin")
+    id("me.champeau.jmh") version Versions.jmhPlugin
 }
 
 sourceSets {
@@ -58,3 +59,7 @@ task<Test>("integrationTest") {
 radarKotlin {
     javaVersion.set(Versions.java)
 }
+
+jmh {
+    jmhVersion.set(Versions.jmh)
+}
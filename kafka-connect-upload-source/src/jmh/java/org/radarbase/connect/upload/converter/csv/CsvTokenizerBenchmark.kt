@@ -0,0 +1,77 @@
+package org.radarbase.connect.upload.converter.csv
+
+import com.opencsv.CSVParserBuilder
+import com.opencsv.CSVReaderBuilder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.io.StringReader
+import java.util.concurrent.TimeUnit
+
+/**
+ * Time per line to read a numeric sensor CSV file and parse its values, with OpenCSV as
+ * configured in [CsvProcessor] and with [CsvTokenizer]. Run it with
+ * `./gradlew :kafka-connect-upload-source:jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(CsvTokenizerBenchmark.NUMBER_OF_LINES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class CsvTokenizerBenchmark {
+    private lateinit var csv: String
+
+    @Setup
+    fun setUp() {
+        csv = buildString {
+            appendLine("TIMESTAMP,X,Y,Z")
+            for (i in 0 until NUMBER_OF_LINES) {
+                append(1_600_000_000_000L + i).append(',')
+                append(i % 100 / 10.0).append(',')
+                append(-0.25 * (i % 7)).append(',')
+                appendLine(9.81)
+            }
+        }
+    }
+
+    @Benchmark
+    fun openCsv(): Double = CSVReaderBuilder(StringReader(csv))
+        .withCSVParser(CSVParserBuilder().withSeparator(',').build())
+        .build()
+        .use { reader ->
+            val row = CsvRow(requireNotNull(reader.readNext()).toList())
+            var sum = 0.0
+            var lineNumber = 1
+            while (true) {
+                row.update(reader.readNext() ?: break, ++lineNumber)
+                sum += row.getLong(0) + row.getFloat(1) + row.getFloat(2) + row.getFloat(3)
+            }
+            sum
+        }
+
+    @Benchmark
+    fun tokenizer(): Double = CsvTokenizer(StringReader(csv)).use { tokenizer ->
+        tokenizer.next()
+        val row = CsvRow(tokenizer.toArray().toList())
+        var sum = 0.0
+        while (tokenizer.next()) {
+            row.update(tokenizer, tokenizer.lineCount)
+            sum += row.getLong(0) + row.getFloat(1) + row.getFloat(2) + row.getFloat(3)
+        }
+        sum
+    }
+
+    companion object {
+        const val NUMBER_OF_LINES = 100_000
+    }
+}
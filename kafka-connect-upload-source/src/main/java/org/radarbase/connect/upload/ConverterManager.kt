@@ -8,28 +8,57 @@ import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.exception.ConflictException
 import org.radarbase.connect.upload.exception.ConversionFailedException
 import org.radarbase.connect.upload.exception.ConversionTemporarilyFailedException
+import org.radarbase.connect.upload.io.RecordContentSpool
 import org.radarbase.connect.upload.logging.LogRepository
 import org.radarbase.connect.upload.logging.RecordLogger
 import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.time.Duration
 import java.time.Instant
-import java.util.concurrent.BlockingQueue
+import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.Semaphore
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
 
 class ConverterManager(
-    private val queue: BlockingQueue<SourceRecord>,
+    private val queue: SourceRecordQueue,
     private val converters: Map<String, ConverterFactory.Converter>,
     private val uploadClient: UploadBackendClient,
     private val logRepository: LogRepository,
     private val pollDuration: Duration,
+    numberOfWorkers: Int = 1,
+    useVirtualThreads: Boolean = false,
+    private val pollSizeController: PollSizeController = PollSizeController(1, 1, 1),
+    private val contentSpool: RecordContentSpool? = null,
+    private val taskIndex: Int = 0,
+    private val taskCount: Int = 1,
+    private val chunkSize: Int = 1,
 ) : Closeable {
     private val executor = Executors.newSingleThreadScheduledExecutor()
+    private val workers: ExecutorService = createWorkerExecutor(numberOfWorkers, useVirtualThreads)
+
+    /**
+     * Maximum number of records that are handed to the conversion workers at once. Besides one
+     * record per worker, only [RECORD_LOOK_AHEAD] records wait for a worker to become available,
+     * so polled records do not go stale in the worker queue.
+     */
+    private val recordCapacity = numberOfWorkers + RECORD_LOOK_AHEAD
+
+    /** Slots of [recordCapacity] that are not taken by polled records. */
+    private val recordSlots = Semaphore(recordCapacity)
 
     init {
-        logger.info("Poll with interval {}", pollDuration)
+        require(numberOfWorkers >= 1) { "Number of conversion workers must be at least 1" }
+        require(taskIndex in 0 until taskCount) { "Task index $taskIndex must be between 0 and task count $taskCount" }
+        logger.info(
+            "Poll with interval {} using {} conversion workers for task {} of {}",
+            pollDuration,
+            numberOfWorkers,
+            taskIndex,
+            taskCount,
+        )
         executor.scheduleAtFixedRate(
             ::poll,
             pollDuration.toMillis() / 2,
@@ -41,58 +70,129 @@ class ConverterManager(
     private fun poll() {
         logger.info("Polling new records...")
         val intervalEnd = Instant.now() + pollDuration
-        val pollSize = 1
 
         do {
+            val nextPollSize = pollSizeController
+                .nextPollSize(queue.remainingCapacity, queue.capacity)
+                .coerceAtMost(recordCapacity)
+            val pollSize = claimRecordSlots(nextPollSize, intervalEnd)
+            if (pollSize == 0) {
+                return
+            }
             val processedRecords = makePoll(pollSize)
+            pollSizeController.update(pollSize, processedRecords)
         } while (processedRecords == pollSize && Instant.now() < intervalEnd)
     }
 
+    /**
+     * Wait until [pollSize] record slots are available and claim them, so that records are
+     * polled in batches of the size that the poll size controller chose. If not enough slots
+     * become available before [intervalEnd], the slots that are available are claimed instead.
+     * @return the number of claimed slots, 0 if none became available in time.
+     */
+    private fun claimRecordSlots(pollSize: Int, intervalEnd: Instant): Int {
+        val timeout = Duration.between(Instant.now(), intervalEnd).toMillis().coerceAtLeast(0L)
+        return try {
+            if (recordSlots.tryAcquire(pollSize, timeout, TimeUnit.MILLISECONDS)) {
+                pollSize
+            } else {
+                val claimedSlots = recordSlots.drainPermits()
+                if (claimedSlots > pollSize) {
+                    recordSlots.release(claimedSlots - pollSize)
+                }
+                claimedSlots.coerceAtMost(pollSize)
+            }
+        } catch (ex: InterruptedException) {
+            Thread.currentThread().interrupt()
+            0
+        }
+    }
+
+    /**
+     * Poll at most [numberOfRecords] records and hand each of them to the conversion workers.
+     * Claimed record slots that do not receive a record are released again.
+     * @return number of records polled.
+     */
     private fun makePoll(numberOfRecords: Int): Int {
         val records = try {
-            uploadClient.pollRecords(PollDTO(numberOfRecords, converters.keys)).records
+            uploadClient.pollRecords(
+                PollDTO(
+                    limit = numberOfRecords,
+                    supportedConverters = converters.keys,
+                    taskIndex = taskIndex,
+                    taskCount = taskCount,
+                ),
+            ).records
         } catch (exe: Throwable) {
             logger.error("Could not successfully poll records. Waiting for next polling...", exe)
+            recordSlots.release(numberOfRecords)
             return 0
         }
 
-        val numberOfKafkaRecords = AtomicLong(0)
+        if (records.size < numberOfRecords) {
+            recordSlots.release(numberOfRecords - records.size)
+        }
 
-        return try {
-            for (record in records) {
-                val recordLogger = logRepository.createLogger(logger, requireNotNull(record.id))
-                try {
-                    numberOfKafkaRecords.set(0L)
-                    processRecord(record, recordLogger) { e ->
-                        queue.put(e)
-                        numberOfKafkaRecords.incrementAndGet()
-                    }
-                    val recordsProcessed = numberOfKafkaRecords.get()
-                    if (recordsProcessed == 0L) {
-                        recordLogger.warn("No records found in data")
-                        updateRecordFailure(
-                            record,
-                            recordLogger,
-                            IllegalArgumentException("No records found in data"),
-                            "No records in data",
-                        )
-                    } else {
-                        recordLogger.info("$recordsProcessed records found in data")
+        records.forEach { record ->
+            contentSpool?.prefetch(record)
+            try {
+                workers.execute {
+                    try {
+                        convertRecord(record)
+                    } finally {
+                        recordSlots.release()
                     }
-                } catch (ex: Throwable) {
-                    recordLogger.error("Cannot convert record", ex)
                 }
+            } catch (ex: RejectedExecutionException) {
+                logger.warn("Conversion workers were shut down before record {} could be converted", record.id)
+                contentSpool?.take(record)?.close()
+                recordSlots.release()
+            }
+        }
+
+        return records.size
+    }
+
+    /**
+     * Convert a single record. All Kafka records of a single record are produced in order by the
+     * calling thread, so the end of record marker is only set on the last one. Records are added
+     * to the queue in chunks of [chunkSize], and the remaining records once the conversion
+     * succeeded.
+     */
+    private fun convertRecord(record: RecordDTO) {
+        val recordLogger = logRepository.createLogger(logger, requireNotNull(record.id))
+        val spooledRecord = contentSpool?.take(record)
+        try {
+            val numberOfKafkaRecords = AtomicLong(0)
+            val batch = queue.batch(chunkSize)
+            processRecord(record, recordLogger, spooledRecord) { e ->
+                batch.add(e)
+                numberOfKafkaRecords.incrementAndGet()
+            }
+            batch.flush()
+            val recordsProcessed = numberOfKafkaRecords.get()
+            if (recordsProcessed == 0L) {
+                recordLogger.warn("No records found in data")
+                updateRecordFailure(
+                    record,
+                    recordLogger,
+                    IllegalArgumentException("No records found in data"),
+                    "No records in data",
+                )
+            } else {
+                recordLogger.info("$recordsProcessed records found in data")
             }
-            records.size
         } catch (ex: Throwable) {
-            logger.error("Failed to process records", ex)
-            numberOfRecords
+            recordLogger.error("Cannot convert record", ex)
+        } finally {
+            spooledRecord?.close()
         }
     }
 
     private fun processRecord(
         record: RecordDTO,
         recordLogger: RecordLogger,
+        spooledRecord: RecordContentSpool.SpooledRecord?,
         produce: (SourceRecord) -> Unit,
     ) {
         try {
@@ -101,7 +201,16 @@ class ConverterManager(
 
             markProcessing(record, recordLogger) ?: return
 
-            converter.convert(record, produce)
+            if (spooledRecord != null) {
+                recordLogger.debug("Converting prefetched record contents")
+                converter.convertStream(
+                    record,
+                    openStream = { context, mapStream -> spooledRecord.read(context.fileName, mapStream) },
+                    produce,
+                )
+            } else {
+                converter.convert(record, produce)
+            }
         } catch (exe: ConversionFailedException) {
             recordLogger.error("Could not convert record")
             updateRecordFailure(record, recordLogger, exe)
@@ -196,6 +305,7 @@ class ConverterManager(
     override fun close() {
         // this will trigger a interrupt on the put method
         executor.shutdownNow()
+        workers.shutdownNow()
         logger.info("Uploading all remaining logs")
         logRepository.recordIds.forEach { r -> uploadLogs(r, reset = true) }
         logger.info("All record logs are uploaded")
@@ -203,5 +313,25 @@ class ConverterManager(
 
     companion object {
         private val logger = LoggerFactory.getLogger(ConverterManager::class.java)
+
+        /** Number of polled records that may wait for a conversion worker. */
+        private const val RECORD_LOOK_AHEAD = 2
+
+        /**
+         * Create an executor for conversion workers. Virtual threads are only used if the JVM
+         * supports them, otherwise a fixed pool of platform threads is used.
+         */
+        private fun createWorkerExecutor(numberOfWorkers: Int, useVirtualThreads: Boolean): ExecutorService {
+            if (useVirtualThreads) {
+                try {
+                    return Executors::class.java
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null) as ExecutorService
+                } catch (ex: ReflectiveOperationException) {
+                    logger.warn("Virtual threads are not supported by this JVM. Using platform threads instead.")
+                }
+            }
+            return Executors.newFixedThreadPool(numberOfWorkers.coerceAtLeast(1))
+        }
     }
 }
@@ -0,0 +1,47 @@
+package org.radarbase.connect.upload
+
+/**
+ * Determines how many records to request per poll. The poll size grows by [step] while polls
+ * return as many records as requested, up to [maximum], and it shrinks when fewer records were
+ * available or when the queue of converted records is close to full.
+ */
+class PollSizeController(
+    private val minimum: Int,
+    val maximum: Int,
+    private val step: Int,
+) {
+    init {
+        require(minimum >= 1) { "Minimum poll size must be at least 1" }
+        require(maximum >= minimum) { "Maximum poll size must be at least the minimum poll size" }
+        require(step >= 1) { "Poll size step must be at least 1" }
+    }
+
+    /** Current poll size. */
+    var pollSize: Int = minimum
+        private set
+
+    /**
+     * Poll size to use for the next poll, given the [remainingCapacity] of a queue with total
+     * capacity [capacity].
+     */
+    fun nextPollSize(remainingCapacity: Int, capacity: Int): Int {
+        if (remainingCapacity.toLong() * NEAR_CAPACITY_DIVISOR < capacity) {
+            pollSize = (pollSize / 2).coerceAtLeast(minimum)
+        }
+        return pollSize
+    }
+
+    /** Update the poll size after [received] records were returned for [requested] records. */
+    fun update(requested: Int, received: Int) {
+        pollSize = if (received >= requested) {
+            (pollSize + step).coerceAtMost(maximum)
+        } else {
+            received.coerceIn(minimum, maximum)
+        }
+    }
+
+    companion object {
+        /** The queue is considered near capacity if less than 1 / NEAR_CAPACITY_DIVISOR of it is free. */
+        private const val NEAR_CAPACITY_DIVISOR = 10L
+    }
+}
@@ -0,0 +1,172 @@
+package org.radarbase.connect.upload
+
+import org.radarbase.connect.upload.api.RecordMetadataDTO
+import org.radarbase.connect.upload.api.UploadBackendClient
+import org.radarbase.connect.upload.exception.BadGatewayException
+import org.radarbase.connect.upload.logging.Log
+import org.radarbase.connect.upload.logging.LogRepository
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.io.IOException
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sends record status updates and record logs to the backend in the background, so that Kafka
+ * Connect commit callbacks do not wait for the backend. Status updates are sent in batches of at
+ * most [batchSize] records and are retried with exponential backoff when the backend cannot be
+ * reached. Updates that the backend rejects are logged and dropped.
+ */
+class RecordStatusDispatcher(
+    private val uploadClient: UploadBackendClient,
+    private val logRepository: LogRepository,
+    flushInterval: Duration,
+    private val batchSize: Int,
+) : Closeable {
+    private val executor = Executors.newSingleThreadScheduledExecutor()
+    private val pendingStatuses = ConcurrentLinkedQueue<RecordMetadataDTO>()
+    private val pendingLogs = ConcurrentLinkedQueue<Log>()
+
+    private var retryDelay: Duration = Duration.ZERO
+    private var nextAttempt: Instant = Instant.MIN
+
+    init {
+        require(batchSize >= 1) { "Status batch size must be at least 1" }
+        executor.scheduleWithFixedDelay(
+            ::dispatch,
+            flushInterval.toMillis(),
+            flushInterval.toMillis(),
+            TimeUnit.MILLISECONDS,
+        )
+    }
+
+    /** Mark the record with given [recordId] and [revision] as successfully processed. */
+    fun succeeded(recordId: Long, revision: Int) {
+        pendingStatuses += RecordMetadataDTO(
+            id = recordId,
+            revision = revision,
+            status = "SUCCEEDED",
+            message = "Record has been processed successfully",
+        )
+    }
+
+    private fun dispatch() {
+        if (Instant.now() < nextAttempt) {
+            return
+        }
+        try {
+            flush()
+            retryDelay = Duration.ZERO
+        } catch (ex: Exception) {
+            retryDelay = if (retryDelay.isZero) MIN_RETRY_DELAY else retryDelay.multipliedBy(2).coerceAtMost(MAX_RETRY_DELAY)
+            nextAttempt = Instant.now() + retryDelay
+            logger.warn("Failed to send record statuses to the backend. Retrying in {}", retryDelay, ex)
+        }
+    }
+
+    private fun flush() {
+        while (pendingStatuses.isNotEmpty()) {
+            val batch = generateSequence { pendingStatuses.poll() }
+                .take(batchSize)
+                .toList()
+
+            send(batch)
+        }
+
+        while (true) {
+            val log = pendingLogs.peek() ?: break
+            logger.info("Uploading logs of record {} to backend", log.recordId)
+            try {
+                uploadClient.addLogs(log)
+            } catch (ex: Exception) {
+                if (ex.isTransient) {
+                    throw ex
+                }
+                logger.error("Dropping logs of record {}: the backend rejected them", log.recordId, ex)
+            }
+            pendingLogs.remove()
+        }
+    }
+
+    /**
+     * Send a [batch] of status updates. If the backend rejects the batch, it is split to find
+     * the updates that it rejects, and those are dropped. On transient errors, the batch is
+     * returned to the queue to be retried.
+     */
+    private fun send(batch: List<RecordMetadataDTO>) {
+        val updatedStatuses = try {
+            uploadClient.updateStatuses(batch)
+        } catch (ex: Exception) {
+            if (ex.isTransient) {
+                pendingStatuses.addAll(batch)
+                throw ex
+            }
+            if (batch.size == 1) {
+                logger.error("Dropping status update of record {}: the backend rejected it", batch[0].id, ex)
+            } else {
+                logger.warn("Backend rejected {} record statuses, sending them in smaller batches: {}", batch.size, ex.toString())
+                val parts = batch.chunked((batch.size + 1) / 2)
+                parts.forEachIndexed { i, part ->
+                    try {
+                        send(part)
+                    } catch (partEx: Exception) {
+                        parts.drop(i + 1).forEach { pendingStatuses.addAll(it) }
+                        throw partEx
+                    }
+                }
+            }
+            return
+        }
+
+        updatedStatuses.forEach { metadata ->
+            val recordId = metadata.id ?: return@forEach
+            if (metadata.status == "SUCCEEDED") {
+                logRepository.extract(recordId, reset = true)?.let { pendingLogs += it }
+            } else {
+                logger.warn("Record {} could not be marked as succeeded: it has status {}", recordId, metadata.status)
+            }
+        }
+    }
+
+    /** Stop dispatching in the background and send any remaining updates. */
+    override fun close() {
+        executor.shutdown()
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow()
+            }
+        } catch (ex: InterruptedException) {
+            executor.shutdownNow()
+            Thread.currentThread().interrupt()
+        }
+        try {
+            flush()
+        } catch (ex: Exception) {
+            logger.error(
+                "Failed to send {} record statuses and {} record logs before closing",
+                pendingStatuses.size,
+                pendingLogs.size,
+                ex,
+            )
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(RecordStatusDispatcher::class.java)
+
+        private val MIN_RETRY_DELAY: Duration = Duration.ofSeconds(1)
+        private val MAX_RETRY_DELAY: Duration = Duration.ofMinutes(5)
+        private val SHUTDOWN_TIMEOUT: Duration = Duration.ofSeconds(30)
+
+        /**
+         * Whether a request that failed with this exception may succeed when it is retried.
+         * Other errors, like an invalid request or missing authorization, are permanent.
+         */
+        private val Exception.isTransient: Boolean
+            get() = this is IOException ||
+                (this is BadGatewayException && (statusCode == null || statusCode >= 500))
+    }
+}
@@ -0,0 +1,118 @@
+package org.radarbase.connect.upload
+
+import org.apache.kafka.connect.source.SourceRecord
+import java.time.Duration
+import java.util.ArrayDeque
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Queue of converted records that is filled and drained in chunks, so that the conversion
+ * workers and the Kafka Connect poll thread take the lock once per chunk instead of once per
+ * record. The queue holds at most [capacity] records, except that a single chunk larger than
+ * the capacity is accepted into an empty queue.
+ */
+class SourceRecordQueue(
+    val capacity: Int,
+) {
+    private val chunks = ArrayDeque<List<SourceRecord>>()
+    private var count = 0
+    private val lock = ReentrantLock()
+    private val notEmpty = lock.newCondition()
+    private val notFull = lock.newCondition()
+
+    /** Number of records in the queue. */
+    val size: Int
+        get() = lock.withLock { count }
+
+    /** Number of records that can be added without blocking. */
+    val remainingCapacity: Int
+        get() = (capacity - size).coerceAtLeast(0)
+
+    init {
+        require(capacity >= 1) { "Queue capacity must be at least 1" }
+    }
+
+    /**
+     * Add a chunk of records, waiting until there is room for all of them.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    fun put(chunk: List<SourceRecord>) {
+        if (chunk.isEmpty()) {
+            return
+        }
+        lock.lockInterruptibly()
+        try {
+            while (count > 0 && count + chunk.size > capacity) {
+                notFull.await()
+            }
+            chunks.addLast(chunk)
+            count += chunk.size
+            notEmpty.signal()
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    /**
+     * Take whole chunks with up to [maxRecords] records in total, and at least one chunk if any
+     * is available. If the queue is empty, wait at most [timeout] for a chunk to arrive.
+     * @return the records in queue order, or null if none arrived in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    fun drain(maxRecords: Int, timeout: Duration): List<SourceRecord>? {
+        lock.lockInterruptibly()
+        try {
+            var nanos = timeout.toNanos()
+            while (chunks.isEmpty()) {
+                if (nanos <= 0L) {
+                    return null
+                }
+                nanos = notEmpty.awaitNanos(nanos)
+            }
+            val first = chunks.removeFirst()
+            val records = if (chunks.isNotEmpty() && first.size + chunks.first.size <= maxRecords) {
+                ArrayList<SourceRecord>(maxRecords.coerceAtMost(count)).apply {
+                    addAll(first)
+                    while (chunks.isNotEmpty() && this.size + chunks.first.size <= maxRecords) {
+                        addAll(chunks.removeFirst())
+                    }
+                }
+            } else {
+                first
+            }
+            count -= records.size
+            notFull.signalAll()
+            return records
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    /**
+     * Sink for the records of a single conversion, that puts them in the queue in chunks of
+     * [chunkSize] records. Call [Batch.flush] after the last record.
+     */
+    fun batch(chunkSize: Int): Batch = Batch(chunkSize.coerceIn(1, capacity))
+
+    inner class Batch internal constructor(private val chunkSize: Int) {
+        private var chunk = ArrayList<SourceRecord>(chunkSize)
+
+        /** Add a record, putting the current chunk in the queue when it is full. */
+        fun add(record: SourceRecord) {
+            chunk.add(record)
+            if (chunk.size >= chunkSize) {
+                flush()
+            }
+        }
+
+        /** Put all records that were added in the queue. */
+        fun flush() {
+            if (chunk.isEmpty()) {
+                return
+            }
+            put(chunk)
+            chunk = ArrayList(chunkSize)
+        }
+    }
+}
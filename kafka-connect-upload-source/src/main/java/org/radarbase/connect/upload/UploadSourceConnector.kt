@@ -22,15 +22,27 @@ package org.radarbase.connect.upload
 import org.apache.kafka.common.config.ConfigDef
 import org.apache.kafka.connect.connector.Task
 import org.apache.kafka.connect.source.SourceConnector
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_COUNT_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_INDEX_CONFIG
 import org.radarbase.connect.upload.util.VersionUtil
 import org.slf4j.LoggerFactory
-import java.util.Collections
 
 class UploadSourceConnector : SourceConnector() {
     private lateinit var connectorConfig: UploadSourceConnectorConfig
 
-    override fun taskConfigs(maxTasks: Int): List<Map<String, String>> =
-        Collections.nCopies(maxTasks, HashMap(connectorConfig.originalsStrings()))
+    /**
+     * Create a configuration for each task. Each task gets its own share of the records, based
+     * on its task index and the total number of tasks.
+     */
+    override fun taskConfigs(maxTasks: Int): List<Map<String, String>> {
+        val config = connectorConfig.originalsStrings()
+        return (0 until maxTasks).map { taskIndex ->
+            HashMap(config).apply {
+                put(SOURCE_TASK_INDEX_CONFIG, taskIndex.toString())
+                put(SOURCE_TASK_COUNT_CONFIG, maxTasks.toString())
+            }
+        }
+    }
 
     override fun start(props: Map<String, String>?) {
         connectorConfig = UploadSourceConnectorConfig(props!!)
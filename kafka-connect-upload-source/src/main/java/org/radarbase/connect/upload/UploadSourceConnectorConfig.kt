@@ -37,6 +37,7 @@ import org.radarbase.connect.upload.converter.oxford.WearableCameraConverterFact
 import org.radarbase.connect.upload.converter.phone.AccelerometerConverterFactory
 import org.radarbase.connect.upload.converter.phone.AccelerometerZipConverterFactory
 import org.radarbase.connect.upload.io.FileUploaderFactory
+import org.radarbase.connect.upload.io.TempSpace
 import org.radarbase.connect.upload.io.UploadType
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -125,6 +126,106 @@ class UploadSourceConnectorConfig(config: ConfigDef, parsedConfig: Map<String, S
         private const val SOURCE_QUEUE_SIZE_DISPLAY = "Records queue size"
         private const val SOURCE_QUEUE_SIZE_DEFAULT = 1000
 
+        const val SOURCE_QUEUE_CHUNK_SIZE_CONFIG = "upload.source.queue.chunk.size"
+        private const val SOURCE_QUEUE_CHUNK_SIZE_DOC = "Number of converted records that are added to the records queue at once. Larger chunks reduce contention between conversion workers and Kafka Connect, but records of a file are only sent once a chunk is full or the file is converted."
+        private const val SOURCE_QUEUE_CHUNK_SIZE_DISPLAY = "Records queue chunk size"
+        private const val SOURCE_QUEUE_CHUNK_SIZE_DEFAULT = 100
+
+        const val SOURCE_CONVERSION_WORKERS_CONFIG = "upload.source.conversion.workers"
+        private const val SOURCE_CONVERSION_WORKERS_DOC = "Number of records that are converted concurrently by a single task."
+        private const val SOURCE_CONVERSION_WORKERS_DISPLAY = "Number of conversion workers"
+        private const val SOURCE_CONVERSION_WORKERS_DEFAULT = 1
+
+        const val SOURCE_CONVERSION_VIRTUAL_THREADS_CONFIG = "upload.source.conversion.virtual.threads"
+        private const val SOURCE_CONVERSION_VIRTUAL_THREADS_DOC = "Whether to run conversion workers on virtual threads. Falls back to platform threads if the JVM does not support virtual threads."
+        private const val SOURCE_CONVERSION_VIRTUAL_THREADS_DISPLAY = "Use virtual threads for conversion"
+        private const val SOURCE_CONVERSION_VIRTUAL_THREADS_DEFAULT = false
+
+        const val SOURCE_POLL_SIZE_MIN_CONFIG = "upload.source.poll.size.min"
+        private const val SOURCE_POLL_SIZE_MIN_DOC = "Minimum number of records to request from the backend per poll."
+        private const val SOURCE_POLL_SIZE_MIN_DISPLAY = "Minimum poll size"
+        private const val SOURCE_POLL_SIZE_MIN_DEFAULT = 1
+
+        const val SOURCE_POLL_SIZE_MAX_CONFIG = "upload.source.poll.size.max"
+        private const val SOURCE_POLL_SIZE_MAX_DOC = "Maximum number of records to request from the backend per poll. The backend does not return more than 100 records per poll. Polls never request more records than the number of conversion workers plus two, and wait until as many earlier records are converted as they request."
+        private const val SOURCE_POLL_SIZE_MAX_DISPLAY = "Maximum poll size"
+        private const val SOURCE_POLL_SIZE_MAX_DEFAULT = 100
+
+        const val SOURCE_POLL_SIZE_STEP_CONFIG = "upload.source.poll.size.step"
+        private const val SOURCE_POLL_SIZE_STEP_DOC = "Number of records to increase the poll size with after a poll that returned as many records as requested."
+        private const val SOURCE_POLL_SIZE_STEP_DISPLAY = "Poll size step"
+        private const val SOURCE_POLL_SIZE_STEP_DEFAULT = 10
+
+        const val SOURCE_STATUS_BATCH_SIZE_CONFIG = "upload.source.status.batch.size"
+        private const val SOURCE_STATUS_BATCH_SIZE_DOC = "Maximum number of record status updates to send to the backend in a single request."
+        private const val SOURCE_STATUS_BATCH_SIZE_DISPLAY = "Status update batch size"
+        private const val SOURCE_STATUS_BATCH_SIZE_DEFAULT = 100
+
+        const val SOURCE_STATUS_FLUSH_INTERVAL_CONFIG = "upload.source.status.flush.interval.ms"
+        private const val SOURCE_STATUS_FLUSH_INTERVAL_DOC = "How often to send pending record status updates to the backend."
+        private const val SOURCE_STATUS_FLUSH_INTERVAL_DISPLAY = "Status update interval"
+        private const val SOURCE_STATUS_FLUSH_INTERVAL_DEFAULT = 1000L
+
+        const val SOURCE_PREFETCH_BYTES_CONFIG = "upload.source.prefetch.bytes"
+        private const val SOURCE_PREFETCH_BYTES_DOC = "Maximum number of bytes of record contents to download to temporary files ahead of conversion. Set to 0 to disable prefetching."
+        private const val SOURCE_PREFETCH_BYTES_DISPLAY = "Prefetch byte budget"
+        private const val SOURCE_PREFETCH_BYTES_DEFAULT = 0L
+
+        const val SOURCE_CONTENT_CACHE_BYTES_CONFIG = "upload.source.content.cache.bytes"
+        private const val SOURCE_CONTENT_CACHE_BYTES_DOC = "Maximum number of bytes of downloaded record contents to keep in temporary files, so that records that are converted again after a temporary failure are not downloaded again. The least recently used files are removed first. Cached files count against upload.source.temp.quota.bytes, so they are also removed when other temporary files need the space. Set to 0 to disable the cache."
+        private const val SOURCE_CONTENT_CACHE_BYTES_DISPLAY = "Content cache size"
+        private const val SOURCE_CONTENT_CACHE_BYTES_DEFAULT = 0L
+
+        const val SOURCE_CSV_TOKENIZER_CONFIG = "upload.source.csv.tokenizer.enable"
+        private const val SOURCE_CSV_TOKENIZER_DOC = "Whether to read CSV files with a streaming tokenizer that does not create strings for values that are parsed as numbers, instead of with OpenCSV."
+        private const val SOURCE_CSV_TOKENIZER_DISPLAY = "Use streaming CSV tokenizer"
+        private const val SOURCE_CSV_TOKENIZER_DEFAULT = false
+
+        const val SOURCE_CSV_PARALLEL_CHUNK_BYTES_CONFIG = "upload.source.csv.parallel.chunk.bytes"
+        private const val SOURCE_CSV_PARALLEL_CHUNK_BYTES_DOC = "Size in bytes of the chunks in which large CSV files are converted in parallel, when all their line processors support it. Files of at least two chunks are split at line boundaries and their records are still sent in file order. Chunks are converted on a dedicated pool per source type, with one thread per processor. Set to 0 to convert CSV files sequentially."
+        private const val SOURCE_CSV_PARALLEL_CHUNK_BYTES_DISPLAY = "Parallel CSV chunk size"
+        private const val SOURCE_CSV_PARALLEL_CHUNK_BYTES_DEFAULT = 0L
+
+        const val SOURCE_SCHEMA_CACHE_SIZE_CONFIG = "upload.source.schema.cache.size"
+        private const val SOURCE_SCHEMA_CACHE_SIZE_DOC = "Maximum number of value schemas for which the task caches the conversion to Kafka Connect schemas. The cache is shared by all converters of the task, so it should fit the schemas of all their topics."
+        private const val SOURCE_SCHEMA_CACHE_SIZE_DISPLAY = "Schema cache size"
+        private const val SOURCE_SCHEMA_CACHE_SIZE_DEFAULT = 100
+
+        const val SOURCE_RANGE_REQUESTS_CONFIG = "upload.source.range.requests.enable"
+        private const val SOURCE_RANGE_REQUESTS_DOC = "Whether to read archives that support it with HTTP range requests, so that only their index and the entries that are converted are downloaded. Requires a backend that supports range requests. Has no effect on prefetched records."
+        private const val SOURCE_RANGE_REQUESTS_DISPLAY = "Read archives with range requests"
+        private const val SOURCE_RANGE_REQUESTS_DEFAULT = false
+
+        const val SOURCE_ARCHIVE_PARALLELISM_CONFIG = "upload.source.archive.parallelism"
+        private const val SOURCE_ARCHIVE_PARALLELISM_DOC = "Maximum number of entries of a single archive that are converted concurrently. Data is still sent in the order of the archive entries, but the converted data of up to this many entries is kept in memory. Entries of archives that cannot be read concurrently are first copied to a temporary file."
+        private const val SOURCE_ARCHIVE_PARALLELISM_DISPLAY = "Archive entry parallelism"
+        private const val SOURCE_ARCHIVE_PARALLELISM_DEFAULT = 1
+
+        const val SOURCE_TEMP_QUOTA_BYTES_CONFIG = "upload.source.temp.quota.bytes"
+        private const val SOURCE_TEMP_QUOTA_BYTES_DOC = "Maximum number of bytes that the connector writes to temporary files, shared by all tasks in a worker. Conversions that need more temporary space wait for other conversions to free it. Records that need a single temporary file larger than the quota fail permanently, except for CSV files, which are then converted sequentially. Set to 0 for no limit."
+        private const val SOURCE_TEMP_QUOTA_BYTES_DISPLAY = "Temporary space quota"
+        private const val SOURCE_TEMP_QUOTA_BYTES_DEFAULT = 0L
+
+        const val SOURCE_TEMP_MEMORY_THRESHOLD_CONFIG = "upload.source.temp.memory.threshold.bytes"
+        private const val SOURCE_TEMP_MEMORY_THRESHOLD_DOC = "Record contents and archive entries that need to be read more than once are kept in memory instead of a temporary file if they are at most this many bytes."
+        private const val SOURCE_TEMP_MEMORY_THRESHOLD_DISPLAY = "In-memory spool threshold"
+        private const val SOURCE_TEMP_MEMORY_THRESHOLD_DEFAULT = TempSpace.DEFAULT_MEMORY_THRESHOLD
+
+        const val SOURCE_TEMP_WAIT_MS_CONFIG = "upload.source.temp.wait.ms"
+        private const val SOURCE_TEMP_WAIT_MS_DOC = "Maximum time in milliseconds to wait for temporary space when the quota is used up. If it takes longer, the record is marked as temporarily failed so that it is converted later."
+        private const val SOURCE_TEMP_WAIT_MS_DISPLAY = "Temporary space wait time"
+        private const val SOURCE_TEMP_WAIT_MS_DEFAULT = 60_000L
+
+        const val SOURCE_TASK_INDEX_CONFIG = "upload.source.task.index"
+        private const val SOURCE_TASK_INDEX_DOC = "Index of this task among all tasks of the connector. Set by the connector."
+        private const val SOURCE_TASK_INDEX_DISPLAY = "Task index"
+        private const val SOURCE_TASK_INDEX_DEFAULT = 0
+
+        const val SOURCE_TASK_COUNT_CONFIG = "upload.source.task.count"
+        private const val SOURCE_TASK_COUNT_DOC = "Total number of tasks of the connector. Each task only polls records with an ID that modulo this count equals its task index. Set by the connector."
+        private const val SOURCE_TASK_COUNT_DISPLAY = "Task count"
+        private const val SOURCE_TASK_COUNT_DEFAULT = 1
+
         private const val UPLOAD_FILE_UPLOADER_TYPE_CONFIG = "upload.source.file.uploader.type"
         private const val UPLOAD_FILE_UPLOADER_TYPE_DOC = "Choose which type of file uploader should be used to upload files to target location from local, sftp, s3."
         private const val UPLOAD_FILE_UPLOADER_TYPE_DISPLAY = "File uploader type"
@@ -200,6 +301,243 @@ class UploadSourceConnectorConfig(config: ConfigDef, parsedConfig: Map<String, S
                     ConfigDef.Width.SHORT,
                     SOURCE_QUEUE_SIZE_DISPLAY,
                 )
+                .define(
+                    SOURCE_QUEUE_CHUNK_SIZE_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_QUEUE_CHUNK_SIZE_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_QUEUE_CHUNK_SIZE_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_QUEUE_CHUNK_SIZE_DISPLAY,
+                )
+                .define(
+                    SOURCE_CONVERSION_WORKERS_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_CONVERSION_WORKERS_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.MEDIUM,
+                    SOURCE_CONVERSION_WORKERS_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_CONVERSION_WORKERS_DISPLAY,
+                )
+                .define(
+                    SOURCE_CONVERSION_VIRTUAL_THREADS_CONFIG,
+                    ConfigDef.Type.BOOLEAN,
+                    SOURCE_CONVERSION_VIRTUAL_THREADS_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    SOURCE_CONVERSION_VIRTUAL_THREADS_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_CONVERSION_VIRTUAL_THREADS_DISPLAY,
+                )
+                .define(
+                    SOURCE_POLL_SIZE_MIN_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_POLL_SIZE_MIN_DEFAULT,
+                    ConfigDef.Range.between(1, 100),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_POLL_SIZE_MIN_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_POLL_SIZE_MIN_DISPLAY,
+                )
+                .define(
+                    SOURCE_POLL_SIZE_MAX_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_POLL_SIZE_MAX_DEFAULT,
+                    ConfigDef.Range.between(1, 100),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_POLL_SIZE_MAX_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_POLL_SIZE_MAX_DISPLAY,
+                )
+                .define(
+                    SOURCE_POLL_SIZE_STEP_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_POLL_SIZE_STEP_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_POLL_SIZE_STEP_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_POLL_SIZE_STEP_DISPLAY,
+                )
+                .define(
+                    SOURCE_STATUS_BATCH_SIZE_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_STATUS_BATCH_SIZE_DEFAULT,
+                    ConfigDef.Range.between(1, 1000),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_STATUS_BATCH_SIZE_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_STATUS_BATCH_SIZE_DISPLAY,
+                )
+                .define(
+                    SOURCE_STATUS_FLUSH_INTERVAL_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_STATUS_FLUSH_INTERVAL_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_STATUS_FLUSH_INTERVAL_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_STATUS_FLUSH_INTERVAL_DISPLAY,
+                )
+                .define(
+                    SOURCE_PREFETCH_BYTES_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_PREFETCH_BYTES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_PREFETCH_BYTES_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_PREFETCH_BYTES_DISPLAY,
+                )
+                .define(
+                    SOURCE_CONTENT_CACHE_BYTES_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_CONTENT_CACHE_BYTES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_CONTENT_CACHE_BYTES_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_CONTENT_CACHE_BYTES_DISPLAY,
+                )
+                .define(
+                    SOURCE_CSV_TOKENIZER_CONFIG,
+                    ConfigDef.Type.BOOLEAN,
+                    SOURCE_CSV_TOKENIZER_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    SOURCE_CSV_TOKENIZER_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_CSV_TOKENIZER_DISPLAY,
+                )
+                .define(
+                    SOURCE_CSV_PARALLEL_CHUNK_BYTES_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_CSV_PARALLEL_CHUNK_BYTES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_CSV_PARALLEL_CHUNK_BYTES_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_CSV_PARALLEL_CHUNK_BYTES_DISPLAY,
+                )
+                .define(
+                    SOURCE_SCHEMA_CACHE_SIZE_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_SCHEMA_CACHE_SIZE_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_SCHEMA_CACHE_SIZE_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_SCHEMA_CACHE_SIZE_DISPLAY,
+                )
+                .define(
+                    SOURCE_RANGE_REQUESTS_CONFIG,
+                    ConfigDef.Type.BOOLEAN,
+                    SOURCE_RANGE_REQUESTS_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    SOURCE_RANGE_REQUESTS_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_RANGE_REQUESTS_DISPLAY,
+                )
+                .define(
+                    SOURCE_ARCHIVE_PARALLELISM_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_ARCHIVE_PARALLELISM_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_ARCHIVE_PARALLELISM_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_ARCHIVE_PARALLELISM_DISPLAY,
+                )
+                .define(
+                    SOURCE_TEMP_QUOTA_BYTES_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_TEMP_QUOTA_BYTES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_TEMP_QUOTA_BYTES_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_TEMP_QUOTA_BYTES_DISPLAY,
+                )
+                .define(
+                    SOURCE_TEMP_MEMORY_THRESHOLD_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_TEMP_MEMORY_THRESHOLD_DEFAULT,
+                    ConfigDef.Range.between(0, 1073741824),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_TEMP_MEMORY_THRESHOLD_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_TEMP_MEMORY_THRESHOLD_DISPLAY,
+                )
+                .define(
+                    SOURCE_TEMP_WAIT_MS_CONFIG,
+                    ConfigDef.Type.LONG,
+                    SOURCE_TEMP_WAIT_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_TEMP_WAIT_MS_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_TEMP_WAIT_MS_DISPLAY,
+                )
+                .define(
+                    SOURCE_TASK_INDEX_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_TASK_INDEX_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_TASK_INDEX_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_TASK_INDEX_DISPLAY,
+                )
+                .define(
+                    SOURCE_TASK_COUNT_CONFIG,
+                    ConfigDef.Type.INT,
+                    SOURCE_TASK_COUNT_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    SOURCE_TASK_COUNT_DOC,
+                    groupName,
+                    ++orderInGroup,
+                    ConfigDef.Width.SHORT,
+                    SOURCE_TASK_COUNT_DISPLAY,
+                )
                 .define(
                     UPLOAD_SOURCE_CLIENT_CONFIG,
                     ConfigDef.Type.STRING,
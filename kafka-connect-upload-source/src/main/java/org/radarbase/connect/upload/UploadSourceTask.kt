@@ -22,28 +22,48 @@ package org.radarbase.connect.upload
 import org.apache.kafka.clients.producer.RecordMetadata
 import org.apache.kafka.connect.source.SourceRecord
 import org.apache.kafka.connect.source.SourceTask
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_CONTENT_CACHE_BYTES_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_CONVERSION_VIRTUAL_THREADS_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_CONVERSION_WORKERS_CONFIG
 import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_POLL_INTERVAL_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_POLL_SIZE_MAX_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_POLL_SIZE_MIN_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_POLL_SIZE_STEP_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_PREFETCH_BYTES_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_QUEUE_CHUNK_SIZE_CONFIG
 import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_QUEUE_SIZE_CONFIG
-import org.radarbase.connect.upload.api.RecordMetadataDTO
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_SCHEMA_CACHE_SIZE_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_STATUS_BATCH_SIZE_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_STATUS_FLUSH_INTERVAL_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_COUNT_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_INDEX_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TEMP_MEMORY_THRESHOLD_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TEMP_QUOTA_BYTES_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TEMP_WAIT_MS_CONFIG
 import org.radarbase.connect.upload.api.UploadBackendClient
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.ConverterFactory.Converter
 import org.radarbase.connect.upload.converter.ConverterFactory.Converter.Companion.END_OF_RECORD_KEY
 import org.radarbase.connect.upload.converter.ConverterFactory.Converter.Companion.RECORD_ID_KEY
 import org.radarbase.connect.upload.converter.ConverterFactory.Converter.Companion.REVISION_KEY
+import org.radarbase.connect.upload.converter.RecordConverter
+import org.radarbase.connect.upload.converter.StructConverter
+import org.radarbase.connect.upload.io.RecordContentCache
+import org.radarbase.connect.upload.io.RecordContentSpool
+import org.radarbase.connect.upload.io.TempSpace
 import org.radarbase.connect.upload.logging.ConverterLogRepository
 import org.radarbase.connect.upload.logging.LogRepository
 import org.radarbase.connect.upload.util.VersionUtil
 import org.slf4j.LoggerFactory
+import java.lang.management.ManagementFactory
 import java.time.Duration
 import java.time.Instant
 import java.time.temporal.Temporal
 import java.util.Timer
 import java.util.TimerTask
-import java.util.concurrent.ArrayBlockingQueue
-import java.util.concurrent.BlockingQueue
-import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
+import javax.management.JMException
+import javax.management.ObjectName
 
 class UploadSourceTask : SourceTask() {
     private var queueSize: Int = 1000
@@ -51,10 +71,15 @@ class UploadSourceTask : SourceTask() {
     private lateinit var uploadClient: UploadBackendClient
     private lateinit var converters: Map<String, Converter>
     private lateinit var logRepository: LogRepository
-    private lateinit var queue: BlockingQueue<SourceRecord>
+    private lateinit var queue: SourceRecordQueue
     private lateinit var converterManager: ConverterManager
+    private lateinit var statusDispatcher: RecordStatusDispatcher
+    private var contentSpool: RecordContentSpool? = null
     private val commitCounter = AtomicLong(0)
     private lateinit var commitTimer: Timer
+    private lateinit var structConverter: StructConverter
+    private var contentCache: RecordContentCache? = null
+    private val metricsNames = mutableListOf<ObjectName>()
 
     private lateinit var nextPoll: Instant
 
@@ -69,17 +94,66 @@ class UploadSourceTask : SourceTask() {
 
         logRepository = ConverterLogRepository()
 
+        TempSpace.configure(
+            quotaBytes = connectConfig.getLong(SOURCE_TEMP_QUOTA_BYTES_CONFIG),
+            memoryThreshold = connectConfig.getInt(SOURCE_TEMP_MEMORY_THRESHOLD_CONFIG),
+            reserveTimeout = Duration.ofMillis(connectConfig.getLong(SOURCE_TEMP_WAIT_MS_CONFIG)),
+        )
+        val numStaleFiles = TempSpace.sweep()
+        if (numStaleFiles > 0) {
+            logger.info("Removed {} stale temporary files from {}", numStaleFiles, TempSpace.root)
+        }
+
+        val schemaCacheSize = connectConfig.getInt(SOURCE_SCHEMA_CACHE_SIZE_CONFIG)
+        structConverter = StructConverter(RecordConverter.createAvroData(schemaCacheSize), schemaCacheSize)
+        val taskIndex = connectConfig.getInt(SOURCE_TASK_INDEX_CONFIG)
+        val connectorName = props["name"] ?: "upload-source"
+        registerMetrics(structConverter, "schema-cache", connectorName, taskIndex)
+        contentCache = connectConfig.getLong(SOURCE_CONTENT_CACHE_BYTES_CONFIG)
+            .takeIf { it > 0L }
+            ?.let { RecordContentCache(maxBytes = it) }
+            ?.also { registerMetrics(it, "content-cache", connectorName, taskIndex) }
+
         // init converters if configured
         converters = connectConfig.converterClasses
-            .map { className -> ConverterFactory.createConverter(className, props, uploadClient, logRepository) }
+            .map { className ->
+                ConverterFactory.createConverter(className, props, uploadClient, logRepository, structConverter, contentCache)
+            }
             .associateBy { it.sourceType }
 
         val pollIntervalMs = connectConfig.getLong(SOURCE_POLL_INTERVAL_CONFIG)
         pollInterval = Duration.ofMillis(pollIntervalMs)
 
         queueSize = connectConfig.getInt(SOURCE_QUEUE_SIZE_CONFIG)
-        queue = ArrayBlockingQueue(queueSize)
-        converterManager = ConverterManager(queue, converters, uploadClient, logRepository, pollInterval)
+        queue = SourceRecordQueue(queueSize)
+        contentSpool = connectConfig.getLong(SOURCE_PREFETCH_BYTES_CONFIG)
+            .takeIf { it > 0L }
+            ?.let { RecordContentSpool(uploadClient, byteBudget = it) }
+        converterManager = ConverterManager(
+            queue,
+            converters,
+            uploadClient,
+            logRepository,
+            pollInterval,
+            numberOfWorkers = connectConfig.getInt(SOURCE_CONVERSION_WORKERS_CONFIG),
+            useVirtualThreads = connectConfig.getBoolean(SOURCE_CONVERSION_VIRTUAL_THREADS_CONFIG),
+            pollSizeController = PollSizeController(
+                minimum = connectConfig.getInt(SOURCE_POLL_SIZE_MIN_CONFIG),
+                maximum = connectConfig.getInt(SOURCE_POLL_SIZE_MAX_CONFIG),
+                step = connectConfig.getInt(SOURCE_POLL_SIZE_STEP_CONFIG),
+            ),
+            contentSpool = contentSpool,
+            taskIndex = taskIndex,
+            taskCount = connectConfig.getInt(SOURCE_TASK_COUNT_CONFIG),
+            chunkSize = connectConfig.getInt(SOURCE_QUEUE_CHUNK_SIZE_CONFIG),
+        )
+
+        statusDispatcher = RecordStatusDispatcher(
+            uploadClient,
+            logRepository,
+            flushInterval = Duration.ofMillis(connectConfig.getLong(SOURCE_STATUS_FLUSH_INTERVAL_CONFIG)),
+            batchSize = connectConfig.getInt(SOURCE_STATUS_BATCH_SIZE_CONFIG),
+        )
 
         commitTimer = Timer(true)
         commitTimer.schedule(
@@ -90,6 +164,23 @@ class UploadSourceTask : SourceTask() {
                         commitCounter.getAndSet(0),
                         pollIntervalMs / 1000,
                     )
+                    logger.debug(
+                        "Schema cache has {} schemas, with {} hits, {} misses and {} evictions",
+                        structConverter.size,
+                        structConverter.hitCount,
+                        structConverter.missCount,
+                        structConverter.evictionCount,
+                    )
+                    contentCache?.let { cache ->
+                        logger.debug(
+                            "Content cache has {} files of {} bytes, with {} hits, {} misses and {} evictions",
+                            cache.size,
+                            cache.cachedBytes,
+                            cache.hitCount,
+                            cache.missCount,
+                            cache.evictionCount,
+                        )
+                    }
                 }
             },
             pollIntervalMs,
@@ -101,9 +192,15 @@ class UploadSourceTask : SourceTask() {
 
     override fun stop() {
         logger.debug("Stopping source task")
+        if (this::statusDispatcher.isInitialized) {
+            statusDispatcher.close()
+        }
         if (this::converterManager.isInitialized) {
             converterManager.close()
         }
+        contentSpool?.close()
+        contentCache?.close()
+        contentCache = null
         if (this::uploadClient.isInitialized) {
             uploadClient.close()
         }
@@ -113,19 +210,36 @@ class UploadSourceTask : SourceTask() {
         if (this::converters.isInitialized) {
             converters.values.forEach(Converter::close)
         }
+        metricsNames.forEach { name ->
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name)
+            } catch (ex: JMException) {
+                logger.warn("Failed to unregister metrics {}", name, ex)
+            }
+        }
+        metricsNames.clear()
+    }
+
+    /**
+     * Expose the cache statistics in [metrics] of this task over JMX. The name includes the
+     * connector, so that tasks of different connectors in the same worker do not collide.
+     */
+    private fun registerMetrics(metrics: Any, type: String, connectorName: String, taskIndex: Int) {
+        try {
+            val name = ObjectName(
+                "org.radarbase.connect.upload:type=$type,connector=${ObjectName.quote(connectorName)},task=$taskIndex",
+            )
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name)
+            metricsNames += name
+        } catch (ex: JMException) {
+            logger.warn("Failed to register {} metrics: {}", type, ex.toString())
+        }
     }
 
     override fun version(): String = VersionUtil.getVersion()
 
-    override fun poll(): List<SourceRecord>? =
-        generateSequence { queue.poll() } // this will retrieve all non-blocking elements
-            .take(queueSize) // don't process more than queueSize records at once
-            .toList()
-            .ifEmpty {
-                // if no non-blocking elements are available, it's ok to wait for them for a bit.
-                val lateElement = queue.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS)
-                if (lateElement != null) listOf(lateElement) else null
-            }
+    // take whole chunks of at most queueSize records, waiting a bit if none are available
+    override fun poll(): List<SourceRecord>? = queue.drain(queueSize, pollInterval)
 
     override fun commitRecord(record: SourceRecord?, recordMetadata: RecordMetadata?) {
         record ?: return
@@ -139,19 +253,7 @@ class UploadSourceTask : SourceTask() {
         val endOfRecord = offset[END_OF_RECORD_KEY] as? Boolean ?: return
 
         if (endOfRecord) {
-            val updatedMetadata = uploadClient.updateStatus(
-                recordId.toLong(),
-                RecordMetadataDTO(
-                    revision = revision.toInt(),
-                    status = "SUCCEEDED",
-                    message = "Record has been processed successfully",
-                ),
-            )
-
-            if (updatedMetadata.status == "SUCCEEDED") {
-                logger.info("Uploading logs to backend")
-                converterManager.uploadLogs(recordId.toLong())
-            }
+            statusDispatcher.succeeded(recordId.toLong(), revision.toInt())
         }
     }
 
@@ -55,6 +55,11 @@ data class RecordMetadataDTO(
     var modifiedDate: Instant? = null,
     var committedDate: Instant? = null,
     var logs: LogsDto? = null,
+    var id: Long? = null,
+)
+
+data class RecordMetadataContainerDTO(
+    var metadata: List<RecordMetadataDTO>,
 )
 
 data class RecordDTO(
@@ -86,6 +91,8 @@ data class SourceTypeContainerDTO(
 data class PollDTO(
     var limit: Int = 10,
     var supportedConverters: Set<String>,
+    var taskIndex: Int = 0,
+    var taskCount: Int = 1,
 )
 
 data class OAuthToken(
@@ -83,6 +83,28 @@ open class UploadBackendClient(
         }
     }
 
+    /**
+     * Retrieve bytes [range] of the contents of [fileName]. The backend must respond with
+     * partial content.
+     */
+    open fun retrieveFileRange(
+        record: RecordDTO,
+        fileName: String,
+        range: LongRange,
+    ): ByteArray = httpClient.executeRequest({
+        url("$uploadBackendBaseUrl/records/${record.id}/contents/$fileName")
+        header("Range", "bytes=${range.first}-${range.last}")
+    }) { response ->
+        if (response.code != 206) {
+            throw IOException("Backend does not support range requests for record ${record.id} file $fileName")
+        }
+        val bytes = response.body?.bytes() ?: throw IOException("No file content response body")
+        if (bytes.size.toLong() != range.last - range.first + 1) {
+            throw IOException("Received ${bytes.size} bytes for range $range of record ${record.id} file $fileName")
+        }
+        bytes
+    }
+
     open fun retrieveRecordMetadata(recordId: Long): RecordMetadataDTO = httpClient.executeRequest {
         url("$uploadBackendBaseUrl/records/$recordId/metadata")
     }
@@ -101,6 +123,19 @@ open class UploadBackendClient(
         return result
     }
 
+    /**
+     * Update the status of multiple records at once. Each status must have its record ID set.
+     * Records that could not be updated are returned with their current status.
+     */
+    open fun updateStatuses(newStatuses: List<RecordMetadataDTO>): List<RecordMetadataDTO> {
+        val result: RecordMetadataContainerDTO = httpClient.executeRequest {
+            url("$uploadBackendBaseUrl/records/metadata/batch")
+            post(RecordMetadataContainerDTO(newStatuses).toJsonBody())
+        }
+        logger.info("Successfully updated the status of {} records", result.metadata.size)
+        return result.metadata
+    }
+
     open fun addLogs(log: Log): RecordMetadataDTO = httpClient.executeRequest {
         url("$uploadBackendBaseUrl/records/${log.recordId}/logs")
         put(object : RequestBody() {
@@ -135,7 +170,10 @@ open class UploadBackendClient(
                     401 -> throw NotAuthorizedException("access token is not provided or is invalid : ${response.message}")
                     403 -> throw NotAuthorizedException("access token is not authorized to perform this request")
                     409 -> throw ConflictException("Conflicting request exception: ${response.message}")
-                    else -> throw BadGatewayException("Failed to make request to ${request.url}: Error code ${response.code}:  ${response.body?.string()}")
+                    else -> throw BadGatewayException(
+                        "Failed to make request to ${request.url}: Error code ${response.code}:  ${response.body?.string()}",
+                        statusCode = response.code,
+                    )
                 }
             }
         }
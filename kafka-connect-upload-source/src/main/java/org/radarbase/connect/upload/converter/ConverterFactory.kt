@@ -17,21 +17,30 @@
 package org.radarbase.connect.upload.converter
 
 import io.confluent.connect.avro.AvroData
+import org.apache.avro.Schema
 import org.apache.kafka.connect.data.SchemaAndValue
 import org.apache.kafka.connect.errors.ConnectException
 import org.apache.kafka.connect.source.SourceRecord
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_ARCHIVE_PARALLELISM_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_RANGE_REQUESTS_CONFIG
 import org.radarbase.connect.upload.api.ContentsDTO
 import org.radarbase.connect.upload.api.RecordDTO
 import org.radarbase.connect.upload.api.RecordDataDTO
 import org.radarbase.connect.upload.api.RecordMetadataDTO
 import org.radarbase.connect.upload.api.SourceTypeDTO
 import org.radarbase.connect.upload.api.UploadBackendClient
+import org.radarbase.connect.upload.converter.csv.CsvLineDiagnostics
+import org.radarbase.connect.upload.converter.csv.CsvOptions
+import org.radarbase.connect.upload.io.RangeReader
+import org.radarbase.connect.upload.io.RecordContentCache
 import org.radarbase.connect.upload.logging.LogRepository
 import org.radarbase.connect.upload.logging.RecordLogger
 import org.radarcns.kafka.ObservationKey
 import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.io.InputStream
+import java.util.Collections
+import java.util.concurrent.ForkJoinPool
 
 /**
  * Converter for each source-type
@@ -63,17 +72,44 @@ interface ConverterFactory {
     ): List<FileProcessorFactory>
 
     /**
-     * Creates a new converter for a record.
+     * Value schemas of the topics that converters of this factory produce, by topic name.
+     * When a converter is created, the schemas of the topics of its source type are converted
+     * ahead of time.
+     */
+    val topicSchemas: Map<String, Schema>
+        get() = emptyMap()
+
+    /**
+     * Creates a new converter for a record. Value schemas are converted and cached by
+     * [structConverter], and downloaded files by [contentCache] if set. Both can be shared with
+     * other converters.
      */
     fun converter(
         settings: Map<String, String>,
         connectorConfig: SourceTypeDTO,
         client: UploadBackendClient,
         logRepository: LogRepository,
+        structConverter: StructConverter = StructConverter(RecordConverter.createAvroData()),
+        contentCache: RecordContentCache? = null,
     ): Converter {
         val preProcessors = filePreProcessorFactories(settings, connectorConfig, logRepository)
         val processors = fileProcessorFactories(settings, connectorConfig, logRepository)
-        return RecordConverter(sourceType, preProcessors, processors, client, logRepository)
+        val topics = connectorConfig.topics
+        structConverter.prewarm(
+            if (topics != null) topics.mapNotNull { topicSchemas[it] } else topicSchemas.values,
+        )
+        return RecordConverter(
+            sourceType,
+            preProcessors,
+            processors,
+            client,
+            logRepository,
+            structConverter = structConverter,
+            csvOptions = CsvOptions.fromSettings(settings),
+            rangeRequests = settings[SOURCE_RANGE_REQUESTS_CONFIG]?.toBoolean() ?: false,
+            archiveParallelism = settings[SOURCE_ARCHIVE_PARALLELISM_CONFIG]?.toIntOrNull() ?: 1,
+            contentCache = contentCache,
+        )
     }
 
     /**
@@ -112,9 +148,10 @@ interface ConverterFactory {
         )
 
         /**
-         * Kafka connect partition that this record converter is.
+         * Kafka connect partition that this record converter is. The same map is shared by all
+         * records of the converter, so it must not be modified.
          */
-        fun getPartition(): MutableMap<String, Any>
+        fun getPartition(): Map<String, Any>
 
         companion object {
             const val END_OF_RECORD_KEY = "endOfRecord"
@@ -135,21 +172,55 @@ interface ConverterFactory {
         val timeReceived: Double,
         val logger: RecordLogger,
         val avroData: AvroData,
+        /** Settings for reading CSV files. */
+        val csvOptions: CsvOptions = CsvOptions(),
+        /** Converter of record values, which should be shared between contexts. */
+        val structConverter: StructConverter = StructConverter(avroData),
+        /** Reader of byte ranges of the file, if it can be read remotely. */
+        val rangeReader: RangeReader? = null,
+        /** Maximum number of entries of an archive that are converted concurrently. */
+        val archiveParallelism: Int = 1,
+        /**
+         * Pool on which chunks of large CSV files are converted in parallel, or null to convert
+         * CSV files sequentially.
+         */
+        val csvChunkPool: ForkJoinPool? = null,
+        /** Kafka key of all data in the record, which is shared between contexts of a record. */
+        val key: SchemaAndValue = createKey(data, structConverter),
+        /** Immutable source offset of all data in the record, except the last. */
+        val offset: Map<String, Any> = createOffset(id, metadata),
     ) {
         val fileName: String get() = contents.fileName
 
-        val key: SchemaAndValue by lazy {
-            avroData.toConnectData(
-                ObservationKey.getClassSchema(),
+        /**
+         * Skipped CSV lines of this file, which are logged as a single summary. Copies of this
+         * context count their own skipped lines.
+         */
+        val lineDiagnostics = CsvLineDiagnostics()
+
+        companion object {
+            private fun createKey(
+                data: RecordDataDTO,
+                structConverter: StructConverter,
+            ): SchemaAndValue = structConverter.toConnectData(
                 ObservationKey(
                     data.projectId,
                     data.userId,
                     data.sourceId,
                 ),
             )
-        }
 
-        companion object {
+            private fun createOffset(
+                id: Long,
+                metadata: RecordMetadataDTO,
+            ): Map<String, Any> = Collections.unmodifiableMap(
+                mapOf(
+                    Converter.END_OF_RECORD_KEY to false,
+                    Converter.RECORD_ID_KEY to id,
+                    Converter.REVISION_KEY to metadata.revision,
+                ),
+            )
+
             /** Create a single content context. */
             fun create(
                 record: RecordDTO,
@@ -157,6 +228,10 @@ interface ConverterFactory {
                 timeReceived: Double = System.currentTimeMillis() / 1000.0,
                 logger: RecordLogger,
                 avroData: AvroData,
+                csvOptions: CsvOptions = CsvOptions(),
+                structConverter: StructConverter = StructConverter(avroData),
+                archiveParallelism: Int = 1,
+                csvChunkPool: ForkJoinPool? = null,
             ): ContentsContext {
                 val id = checkNotNull(record.id)
                 val data = checkNotNull(record.data) { "Record data cannot be null" }
@@ -171,6 +246,10 @@ interface ConverterFactory {
                     timeReceived = timeReceived,
                     logger = logger,
                     avroData = avroData,
+                    csvOptions = csvOptions,
+                    structConverter = structConverter,
+                    archiveParallelism = archiveParallelism,
+                    csvChunkPool = csvChunkPool,
                 )
             }
 
@@ -179,12 +258,18 @@ interface ConverterFactory {
                 record: RecordDTO,
                 logRepository: LogRepository,
                 avroData: AvroData,
+                csvOptions: CsvOptions = CsvOptions(),
+                structConverter: StructConverter = StructConverter(avroData),
+                archiveParallelism: Int = 1,
+                csvChunkPool: ForkJoinPool? = null,
             ): List<ContentsContext> {
                 val id = checkNotNull(record.id)
                 val data = checkNotNull(record.data) { "Record data cannot be null" }
                 val metadata = checkNotNull(record.metadata) { "Record meta-data cannot be null" }
                 val logger = logRepository.createLogger(logger, id)
                 val timeReceived = System.currentTimeMillis() / 1000.0
+                val key = createKey(data, structConverter)
+                val offset = createOffset(id, metadata)
 
                 return checkNotNull(data.contents) { "Record data has empty content" }
                     .map { contents ->
@@ -197,6 +282,12 @@ interface ConverterFactory {
                             timeReceived = timeReceived,
                             logger = logger,
                             avroData = avroData,
+                            csvOptions = csvOptions,
+                            structConverter = structConverter,
+                            archiveParallelism = archiveParallelism,
+                            csvChunkPool = csvChunkPool,
+                            key = key,
+                            offset = offset,
                         )
                     }
             }
@@ -229,17 +320,19 @@ interface ConverterFactory {
         }
 
         /**
-         * Creates a record converter.
+         * Creates a record converter that shares [structConverter] for converting values.
          */
         fun createConverter(
             factoryClassName: String,
             settings: Map<String, String>,
             client: UploadBackendClient,
             logRepository: LogRepository,
+            structConverter: StructConverter = StructConverter(RecordConverter.createAvroData()),
+            contentCache: RecordContentCache? = null,
         ): Converter {
             val converterFactory = fromClassName(factoryClassName)
             val config = client.requestConnectorConfig(converterFactory.sourceType)
-            return converterFactory.converter(settings, config, client, logRepository)
+            return converterFactory.converter(settings, config, client, logRepository, structConverter, contentCache)
         }
     }
 }
@@ -1,10 +1,17 @@
 package org.radarbase.connect.upload.converter
 
 import org.radarbase.connect.upload.exception.DataProcessorNotFoundException
-import org.radarbase.connect.upload.io.TempFile.Companion.copyToTempFile
+import org.radarbase.connect.upload.io.StreamTee
+import org.radarbase.connect.upload.io.TempFile.Companion.spool
+import org.radarbase.connect.upload.io.TempFile.TempFileInputStream
 import java.io.InputStream
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
 
 /**
  * Delegate file processing to multiple underlying processors.
@@ -40,21 +47,93 @@ class DelegatingProcessor(
 
         val preProcessedStream = inputStream.preProcessed(createPreProcessors(context), context)
 
-        val processStream: FileProcessor.(InputStream) -> Unit = { stream ->
+        val processStream: FileProcessor.(InputStream, (TopicData) -> Unit) -> Unit = { stream, produceData ->
             context.logger.debug("Processing ${context.fileName} with ${javaClass.simpleName} processor")
-            processData(context, stream, produce)
+            processData(context, stream, produceData)
         }
 
-        if (processors.size == 1) {
-            processors.first().processStream(preProcessedStream)
-        } else {
-            preProcessedStream.copyToTempFile(
+        val processSpooled = {
+            preProcessedStream.spool(
                 tempDir,
                 generateTempFilePrefix(context),
-            ).use { tempFile ->
-                processors.forEach { it.processStream(tempFile.inputStream()) }
+            ).use { spool ->
+                processors.forEach { it.processStream(spool.inputStream(), produce) }
             }
         }
+
+        when {
+            processors.size == 1 -> processors.first().processStream(preProcessedStream, produce)
+            preProcessedStream is TempFileInputStream -> {
+                // already stored in a file, so each processor can read it separately
+                preProcessedStream.close()
+                processors.forEach { it.processStream(TempFileInputStream(preProcessedStream.path), produce) }
+            }
+            processors.any { it.requiresRandomAccess } -> processSpooled()
+            // all fan-out threads are in use, so read the processors one after another
+            !fanOutThreads.tryAcquire(processors.size - 1) -> processSpooled()
+            else -> try {
+                fanOut(processors, preProcessedStream, produce, processStream)
+            } finally {
+                fanOutThreads.release(processors.size - 1)
+            }
+        }
+    }
+
+    /**
+     * Whether the file of [context] is only read by a single processor that reads byte ranges
+     * of it, so that its input stream is not needed.
+     */
+    fun readsRanges(context: ConverterFactory.ContentsContext): Boolean {
+        if (context.rangeReader == null || createPreProcessors(context).isNotEmpty()) {
+            return false
+        }
+        return createProcessors(context).singleOrNull()?.prefersRangeReads == true
+    }
+
+    /**
+     * Process a single pass over [inputStream] with all [processors] at once. Each processor
+     * reads its own branch of a [StreamTee], the first one on the current thread and the others
+     * on [fanOutExecutor], for which threads must be acquired from [fanOutThreads]. Records are
+     * produced one at a time, so records of different processors may be interleaved. If a
+     * processor fails, the others are stopped and its exception is thrown after all processors
+     * have finished.
+     */
+    private fun fanOut(
+        processors: List<FileProcessor>,
+        inputStream: InputStream,
+        produce: (TopicData) -> Unit,
+        processStream: FileProcessor.(InputStream, (TopicData) -> Unit) -> Unit,
+    ) {
+        val produceLock = Any()
+        val synchronizedProduce: (TopicData) -> Unit = { synchronized(produceLock) { produce(it) } }
+        val failure = AtomicReference<Throwable>()
+
+        inputStream.use { stream ->
+            StreamTee(stream, processors.size).use { tee ->
+                val processBranch: (Int) -> Unit = { index ->
+                    try {
+                        tee.branches[index].use { processors[index].processStream(it, synchronizedProduce) }
+                    } catch (ex: Throwable) {
+                        if (failure.compareAndSet(null, ex)) {
+                            tee.close()
+                        }
+                    }
+                }
+
+                val tasks = (1 until processors.size).map { index ->
+                    fanOutExecutor.submit { processBranch(index) }
+                }
+                try {
+                    processBranch(0)
+                    tasks.forEach { it.get() }
+                } catch (ex: InterruptedException) {
+                    tee.close()
+                    tasks.forEach { it.cancel(true) }
+                    throw ex
+                }
+            }
+        }
+        failure.get()?.let { throw it }
     }
 
     private fun InputStream.preProcessed(
@@ -85,4 +164,21 @@ class DelegatingProcessor(
             }
         }
     }
+
+    companion object {
+        private val fanOutThreadCount = AtomicInteger(0)
+
+        /** Maximum number of threads of [fanOutExecutor]. */
+        private const val MAX_FAN_OUT_THREADS = 16
+
+        /** Threads of [fanOutExecutor] that are not in use. */
+        private val fanOutThreads = Semaphore(MAX_FAN_OUT_THREADS)
+
+        /** Threads for processors that read a shared file concurrently. */
+        private val fanOutExecutor: ExecutorService = Executors.newCachedThreadPool { runnable ->
+            Thread(runnable, "upload-fan-out-${fanOutThreadCount.incrementAndGet()}").apply {
+                isDaemon = true
+            }
+        }
+    }
 }
@@ -0,0 +1,260 @@
+package org.radarbase.connect.upload.converter
+
+import java.math.BigInteger
+
+/**
+ * Parses numbers directly from character sequences, such as CSV fields, without creating
+ * strings. Decimal numbers of at most 19 significant digits are converted with Clinger's fast
+ * path or with the Eisel-Lemire algorithm, which both round correctly. Any other input, like
+ * hexadecimal numbers, NaN or surrounding whitespace, or the rare case that Eisel-Lemire
+ * cannot decide, falls back to the JDK parsers. The accepted syntax and errors are therefore
+ * the same as those of [String.toDouble] and [String.toFloat].
+ */
+object FastNumberParser {
+    private const val MAX_DIGITS = 19
+    private const val MIN_EXPONENT = -342
+    private const val MAX_EXPONENT = 308
+    private const val MAX_EXACT_DOUBLE = 1L shl 53
+    private const val MAX_EXACT_FLOAT = 1L shl 24
+    private const val DOUBLE_SIGN = Long.MIN_VALUE
+    private const val FLOAT_SIGN = 1L shl 31
+
+    /** NaN bit pattern that is never produced by parsing, marking that a fallback is needed. */
+    private const val FALLBACK = 0x7FF8_0000_0000_0001L
+
+    private val DOUBLE_POWERS = DoubleArray(23) { "1e$it".toDouble() }
+    private val FLOAT_POWERS = FloatArray(11) { "1e$it".toFloat() }
+
+    /** High and low 64 bits of the normalized 128-bit mantissa of each power of ten. */
+    private val POWERS_HIGH = LongArray(MAX_EXPONENT - MIN_EXPONENT + 1)
+    private val POWERS_LOW = LongArray(MAX_EXPONENT - MIN_EXPONENT + 1)
+
+    init {
+        for (exponent in MIN_EXPONENT..MAX_EXPONENT) {
+            val mantissa = powerOfTenMantissa(exponent)
+            POWERS_HIGH[exponent - MIN_EXPONENT] = mantissa.shiftRight(64).toLong()
+            POWERS_LOW[exponent - MIN_EXPONENT] = mantissa.toLong()
+        }
+    }
+
+    /** Parse a double from [value] between [start] and [end]. */
+    fun parseDouble(value: CharSequence, start: Int = 0, end: Int = value.length): Double {
+        val bits = parseBits(value, start, end, isFloat = false)
+        return if (bits != FALLBACK) {
+            Double.fromBits(bits)
+        } else {
+            value.subSequence(start, end).toString().toDouble()
+        }
+    }
+
+    /** Parse a float from [value] between [start] and [end]. */
+    fun parseFloat(value: CharSequence, start: Int = 0, end: Int = value.length): Float {
+        val bits = parseBits(value, start, end, isFloat = true)
+        return if (bits != FALLBACK) {
+            Float.fromBits(bits.toInt())
+        } else {
+            value.subSequence(start, end).toString().toFloat()
+        }
+    }
+
+    /** Parse a decimal long from [value] between [start] and [end]. */
+    fun parseLong(value: CharSequence, start: Int = 0, end: Int = value.length): Long =
+        java.lang.Long.parseLong(value, start, end, 10)
+
+    /** Parse a decimal int from [value] between [start] and [end]. */
+    fun parseInt(value: CharSequence, start: Int = 0, end: Int = value.length): Int =
+        Integer.parseInt(value, start, end, 10)
+
+    /** Whether [value] equals `true`, ignoring case, like [String.toBoolean]. */
+    fun parseBoolean(value: CharSequence): Boolean = "true".contentEquals(value, ignoreCase = true)
+
+    /**
+     * Parse a decimal number to the bits of a double or, if [isFloat], a float.
+     * @return the bits, or [FALLBACK] if the number should be parsed by the JDK.
+     */
+    private fun parseBits(value: CharSequence, start: Int, end: Int, isFloat: Boolean): Long {
+        var i = start
+        if (i >= end) {
+            return FALLBACK
+        }
+        val isNegative = value[i] == '-'
+        if (isNegative || value[i] == '+') {
+            i++
+        }
+
+        var mantissa = 0L
+        var numDigits = 0
+        var exponent = 0
+        var hasDigits = false
+        var isFraction = false
+        while (i < end) {
+            val c = value[i]
+            if (c == '.' && !isFraction) {
+                isFraction = true
+                i++
+                continue
+            }
+            if (c !in '0'..'9') {
+                break
+            }
+            hasDigits = true
+            val digit = c - '0'
+            if (mantissa != 0L || digit != 0) {
+                if (numDigits == MAX_DIGITS) {
+                    return FALLBACK
+                }
+                // may overflow to a negative value, which is treated as unsigned
+                mantissa = mantissa * 10 + digit
+                numDigits++
+            }
+            if (isFraction) {
+                exponent--
+            }
+            i++
+        }
+        if (!hasDigits) {
+            return FALLBACK
+        }
+        if (i < end && (value[i] == 'e' || value[i] == 'E')) {
+            i++
+            if (i >= end) {
+                return FALLBACK
+            }
+            val isExponentNegative = value[i] == '-'
+            if (isExponentNegative || value[i] == '+') {
+                i++
+            }
+            if (i >= end || value[i] !in '0'..'9') {
+                return FALLBACK
+            }
+            var explicitExponent = 0
+            while (i < end && value[i] in '0'..'9') {
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + (value[i] - '0')
+                }
+                i++
+            }
+            exponent += if (isExponentNegative) -explicitExponent else explicitExponent
+        }
+        if (i != end) {
+            return FALLBACK
+        }
+
+        val bits = when {
+            mantissa == 0L -> 0L
+            isFloat -> floatBits(mantissa, exponent)
+            else -> doubleBits(mantissa, exponent)
+        }
+        return when {
+            bits == FALLBACK || !isNegative -> bits
+            isFloat -> bits or FLOAT_SIGN
+            else -> bits or DOUBLE_SIGN
+        }
+    }
+
+    private fun doubleBits(mantissa: Long, exponent: Int): Long {
+        if (mantissa in 0..MAX_EXACT_DOUBLE && exponent in -22..22) {
+            // Clinger's fast path: both operands and therefore the result are exact
+            val value = mantissa.toDouble()
+            return if (exponent < 0) {
+                value / DOUBLE_POWERS[-exponent]
+            } else {
+                value * DOUBLE_POWERS[exponent]
+            }.toRawBits()
+        }
+        return eiselLemire(mantissa, exponent, isFloat = false)
+    }
+
+    private fun floatBits(mantissa: Long, exponent: Int): Long {
+        if (mantissa in 0..MAX_EXACT_FLOAT && exponent in -10..10) {
+            val value = mantissa.toFloat()
+            return if (exponent < 0) {
+                value / FLOAT_POWERS[-exponent]
+            } else {
+                value * FLOAT_POWERS[exponent]
+            }.toRawBits().toLong() and 0xFFFF_FFFFL
+        }
+        return eiselLemire(mantissa, exponent, isFloat = true)
+    }
+
+    /**
+     * Eisel-Lemire conversion of unsigned [mantissa] times ten to the power [exponent], as
+     * described in D. Lemire, "Number Parsing at a Gigabyte per Second", 2021.
+     */
+    private fun eiselLemire(mantissa: Long, exponent: Int, isFloat: Boolean): Long {
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) {
+            return FALLBACK
+        }
+        val index = exponent - MIN_EXPONENT
+        val leadingZeros = mantissa.countLeadingZeroBits()
+        val normalized = mantissa shl leadingZeros
+        val bias = if (isFloat) 127 else 1023
+        var binaryExponent = ((217706 * exponent) shr 16) + 64 + bias - leadingZeros
+
+        var high = unsignedMultiplyHigh(normalized, POWERS_HIGH[index])
+        var low = normalized * POWERS_HIGH[index]
+        val mask = if (isFloat) 0x3F_FFFF_FFFFL else 0x1FFL
+        if (high and mask == mask && isUnsignedLess(low + normalized, normalized)) {
+            // the truncated power of ten may be too imprecise, so include its lower bits
+            val lowerHigh = unsignedMultiplyHigh(normalized, POWERS_LOW[index])
+            val lowerLow = normalized * POWERS_LOW[index]
+            var mergedHigh = high
+            val mergedLow = low + lowerHigh
+            if (isUnsignedLess(mergedLow, low)) {
+                mergedHigh++
+            }
+            if (mergedHigh and mask == mask && mergedLow + 1 == 0L && isUnsignedLess(lowerLow + normalized, normalized)) {
+                return FALLBACK
+            }
+            high = mergedHigh
+            low = mergedLow
+        }
+
+        val mantissaBits = if (isFloat) 23 else 52
+        val upperBit = (high ushr 63).toInt()
+        var result = high ushr (upperBit + 63 - mantissaBits - 2)
+        binaryExponent -= 1 xor upperBit
+
+        if (low == 0L && high and mask == 0L && result and 3L == 1L) {
+            // exactly halfway between two values, so the rounding direction is unknown
+            return FALLBACK
+        }
+        result += result and 1L
+        result = result ushr 1
+        if (result ushr (mantissaBits + 1) != 0L) {
+            result = result ushr 1
+            binaryExponent++
+        }
+        val maxBinaryExponent = if (isFloat) 0xFF else 0x7FF
+        if (binaryExponent <= 0 || binaryExponent >= maxBinaryExponent) {
+            // subnormal or infinite
+            return FALLBACK
+        }
+        return (binaryExponent.toLong() shl mantissaBits) or (result and ((1L shl mantissaBits) - 1))
+    }
+
+    private fun isUnsignedLess(a: Long, b: Long): Boolean = java.lang.Long.compareUnsigned(a, b) < 0
+
+    private fun unsignedMultiplyHigh(a: Long, b: Long): Long =
+        Math.multiplyHigh(a, b) + ((a shr 63) and b) + ((b shr 63) and a)
+
+    /**
+     * Most significant 128 bits of ten to the power [exponent]. Positive powers are truncated,
+     * negative powers are rounded up as in the tables of the fast_float library.
+     */
+    private fun powerOfTenMantissa(exponent: Int): BigInteger {
+        if (exponent >= 0) {
+            val power = BigInteger.valueOf(5).pow(exponent)
+            val bitLength = power.bitLength()
+            return if (bitLength < 128) power.shiftLeft(128 - bitLength) else power.shiftRight(bitLength - 128)
+        }
+        val power = BigInteger.valueOf(5).pow(-exponent)
+        val bitLength = power.bitLength()
+        return if (exponent >= -27) {
+            BigInteger.ONE.shiftLeft(bitLength + 127).divide(power).add(BigInteger.ONE)
+        } else {
+            val value = BigInteger.ONE.shiftLeft(2 * bitLength + 128).divide(power).add(BigInteger.ONE)
+            value.shiftRight(maxOf(0, value.bitLength() - 128))
+        }
+    }
+}
@@ -1,9 +1,27 @@
 package org.radarbase.connect.upload.converter
 
+import org.radarbase.connect.upload.io.TempFile
 import java.io.InputStream
 
 /** Processor to process a single file in a record. */
 interface FileProcessor {
+    /**
+     * Whether this processor needs random access to its input. If so and other processors
+     * match the same file, the file is stored in a [TempFile] and processors are given a
+     * [TempFile.TempFileInputStream]. Otherwise, all processors read a single pass over the
+     * file concurrently.
+     */
+    val requiresRandomAccess: Boolean
+        get() = false
+
+    /**
+     * Whether this processor reads its file with [ConverterFactory.ContentsContext.rangeReader]
+     * when that is available, instead of from its input stream. If it is the only processor of
+     * a file, the file is then not downloaded as a whole.
+     */
+    val prefersRangeReads: Boolean
+        get() = false
+
     /**
      * Process record contents from [context] using [inputStream] and sends the result to [produce].
      */
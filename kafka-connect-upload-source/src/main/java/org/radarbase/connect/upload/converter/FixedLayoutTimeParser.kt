@@ -0,0 +1,268 @@
+package org.radarbase.connect.upload.converter
+
+import java.time.DateTimeException
+import java.time.LocalDate
+import java.time.ZoneOffset
+import java.time.format.DateTimeFormatter
+
+/**
+ * CSV timestamp parser for date-time patterns with a fixed layout, such as
+ * `yyyy-MM-dd'T'HH:mm:ss.SSS`. Supported patterns contain the fields `yyyy` (or `uuuu`), `MM`,
+ * `dd`, `HH`, `mm` and `ss`, and optionally `S` to `SSSSSSSSS` and a `+HHMM` offset `Z`, in any
+ * order and separated by literals. Times without an offset are in UTC. The pattern is compiled
+ * to fixed field positions, so parsing reads digits directly from the timestamp. When the date
+ * and hour precede the other fields, the epoch second of the last date and hour is cached, so
+ * that consecutive timestamps only parse minutes, seconds and fraction.
+ *
+ * Patterns that cannot be compiled and timestamps that do not match the layout or contain
+ * out-of-range values are parsed by [fallback] instead. Like [TimeFieldParser.DateFormatParser],
+ * the result is truncated to milliseconds.
+ */
+class FixedLayoutTimeParser(
+    pattern: String,
+    override val fieldName: String = "TIMESTAMP",
+    private val fallback: TimeFieldParser = TimeFieldParser.DateFormatParser(
+        DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC),
+        fieldName,
+    ),
+) : TimeFieldParser {
+    private val layout: Layout? = Layout.compile(pattern)
+
+    @Volatile
+    private var cachedHour: CachedHour? = null
+
+    /** Whether the pattern was compiled, otherwise all timestamps are parsed by the fallback. */
+    val isCompiled: Boolean
+        get() = layout != null
+
+    override fun timeFromString(timestamp: String): Double = timeFromChars(timestamp)
+
+    override fun timeFromChars(timestamp: CharSequence): Double {
+        val layout = layout
+        if (layout == null || !layout.matches(timestamp)) {
+            return fallback.timeFromChars(timestamp)
+        }
+        val hourSecond = hourEpochSecond(layout, timestamp)
+        val minute = digits(timestamp, layout.minute, 2)
+        val second = digits(timestamp, layout.second, 2)
+        if (hourSecond == INVALID || minute > 59 || second > 59) {
+            return fallback.timeFromChars(timestamp)
+        }
+        var epochSecond = hourSecond + minute * 60 + second
+        if (layout.offset != -1) {
+            val offsetHour = digits(timestamp, layout.offset + 1, 2)
+            val offsetMinute = digits(timestamp, layout.offset + 3, 2)
+            val offsetSeconds = offsetHour * 3600 + offsetMinute * 60
+            // like ZoneOffset, allow at most 18 hours
+            if (offsetMinute > 59 || offsetSeconds > MAX_OFFSET_SECONDS) {
+                return fallback.timeFromChars(timestamp)
+            }
+            epochSecond += if (timestamp[layout.offset] == '-') offsetSeconds else -offsetSeconds
+        }
+        val millis = when {
+            layout.fraction == -1 -> 0
+            layout.fractionLength >= 3 -> digits(timestamp, layout.fraction, 3)
+            else -> digits(timestamp, layout.fraction, layout.fractionLength) * MILLIS_SCALE[layout.fractionLength]
+        }
+        return (epochSecond * 1000L + millis) / 1000.0
+    }
+
+    /** Epoch second of the date and hour in [timestamp], or [INVALID] if they are out of range. */
+    private fun hourEpochSecond(layout: Layout, timestamp: CharSequence): Long {
+        val cached = cachedHour
+        if (cached != null && layout.prefixLength > 0 && cached.matches(timestamp)) {
+            return cached.epochSecond
+        }
+        val year = digits(timestamp, layout.year, 4)
+        val month = digits(timestamp, layout.month, 2)
+        val day = digits(timestamp, layout.day, 2)
+        val hour = digits(timestamp, layout.hour, 2)
+        if (year < 1 || month !in 1..12 || day !in 1..31 || hour > 23) {
+            return INVALID
+        }
+        val date = try {
+            LocalDate.of(year, month, day)
+        } catch (ex: DateTimeException) {
+            return INVALID
+        }
+        val epochSecond = date.toEpochDay() * SECONDS_PER_DAY + hour * 3600
+        if (layout.prefixLength > 0) {
+            cachedHour = CachedHour(timestamp.subSequence(0, layout.prefixLength).toString(), epochSecond)
+        }
+        return epochSecond
+    }
+
+    private class CachedHour(val prefix: String, val epochSecond: Long) {
+        fun matches(timestamp: CharSequence): Boolean {
+            for (i in prefix.indices) {
+                if (timestamp[i] != prefix[i]) {
+                    return false
+                }
+            }
+            return true
+        }
+    }
+
+    /**
+     * Compiled pattern. The [template] contains [DIGIT] where a digit is expected, [SIGN] where
+     * an offset sign is expected and literal characters elsewhere. Field values are positions
+     * in the template, or -1 if the field is absent.
+     */
+    private class Layout(
+        val template: CharArray,
+        val year: Int,
+        val month: Int,
+        val day: Int,
+        val hour: Int,
+        val minute: Int,
+        val second: Int,
+        val fraction: Int,
+        val fractionLength: Int,
+        val offset: Int,
+        /** Length of the prefix that contains the date and hour, or 0 if it cannot be cached. */
+        val prefixLength: Int,
+    ) {
+        fun matches(timestamp: CharSequence): Boolean {
+            if (timestamp.length != template.size) {
+                return false
+            }
+            for (i in template.indices) {
+                val c = timestamp[i]
+                val isMatch = when (val expected = template[i]) {
+                    DIGIT -> c in '0'..'9'
+                    SIGN -> c == '+' || c == '-'
+                    else -> c == expected
+                }
+                if (!isMatch) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        companion object {
+            private const val YEAR = 0
+            private const val MONTH = 1
+            private const val DAY = 2
+            private const val HOUR = 3
+            private const val MINUTE = 4
+            private const val SECOND = 5
+            private const val FRACTION = 6
+            private const val OFFSET = 7
+
+            /** Compile [pattern], or return null if it does not have a supported fixed layout. */
+            fun compile(pattern: String): Layout? {
+                val template = StringBuilder()
+                val positions = IntArray(8) { -1 }
+                var fractionLength = 0
+                var i = 0
+                while (i < pattern.length) {
+                    val c = pattern[i]
+                    if (c == '\'') {
+                        i = appendQuoted(pattern, i, template) ?: return null
+                        continue
+                    }
+                    if (c in "[]{}#") {
+                        return null
+                    }
+                    if (c !in 'a'..'z' && c !in 'A'..'Z') {
+                        template.append(c)
+                        i++
+                        continue
+                    }
+                    var count = 1
+                    while (i + count < pattern.length && pattern[i + count] == c) {
+                        count++
+                    }
+                    val field = when {
+                        (c == 'y' || c == 'u') && count == 4 -> YEAR
+                        c == 'M' && count == 2 -> MONTH
+                        c == 'd' && count == 2 -> DAY
+                        c == 'H' && count == 2 -> HOUR
+                        c == 'm' && count == 2 -> MINUTE
+                        c == 's' && count == 2 -> SECOND
+                        c == 'S' && count <= 9 -> FRACTION
+                        c == 'Z' && count <= 3 -> OFFSET
+                        else -> return null
+                    }
+                    if (positions[field] != -1) {
+                        return null
+                    }
+                    positions[field] = template.length
+                    if (field == OFFSET) {
+                        template.append(SIGN)
+                        repeat(4) { template.append(DIGIT) }
+                    } else {
+                        repeat(count) { template.append(DIGIT) }
+                    }
+                    if (field == FRACTION) {
+                        fractionLength = count
+                    }
+                    i += count
+                }
+                if ((YEAR..SECOND).any { positions[it] == -1 }) {
+                    return null
+                }
+                val prefixEnd = maxOf(positions[YEAR] + 4, positions[MONTH] + 2, positions[DAY] + 2, positions[HOUR] + 2)
+                val isPrefixCacheable = (MINUTE..OFFSET).all { positions[it] == -1 || positions[it] >= prefixEnd }
+
+                return Layout(
+                    template = template.toString().toCharArray(),
+                    year = positions[YEAR],
+                    month = positions[MONTH],
+                    day = positions[DAY],
+                    hour = positions[HOUR],
+                    minute = positions[MINUTE],
+                    second = positions[SECOND],
+                    fraction = positions[FRACTION],
+                    fractionLength = fractionLength,
+                    offset = positions[OFFSET],
+                    prefixLength = if (isPrefixCacheable) prefixEnd else 0,
+                )
+            }
+
+            /**
+             * Append the quoted literal starting at [start] to [template].
+             * @return the position after the closing quote, or null if the quote is not closed.
+             */
+            private fun appendQuoted(pattern: String, start: Int, template: StringBuilder): Int? {
+                var i = start + 1
+                if (i < pattern.length && pattern[i] == '\'') {
+                    template.append('\'')
+                    return i + 1
+                }
+                while (i < pattern.length) {
+                    if (pattern[i] == '\'') {
+                        if (i + 1 < pattern.length && pattern[i + 1] == '\'') {
+                            template.append('\'')
+                            i += 2
+                        } else {
+                            return i + 1
+                        }
+                    } else {
+                        template.append(pattern[i++])
+                    }
+                }
+                return null
+            }
+        }
+    }
+
+    companion object {
+        private const val DIGIT = '\u0000'
+        private const val SIGN = '\u0001'
+        private const val INVALID = Long.MIN_VALUE
+        private const val SECONDS_PER_DAY = 86_400L
+        private const val MAX_OFFSET_SECONDS = 18 * 3600
+        private val MILLIS_SCALE = intArrayOf(0, 100, 10)
+
+        /** Parse [count] digits of [timestamp] starting at [start], which must all be digits. */
+        private fun digits(timestamp: CharSequence, start: Int, count: Int): Int {
+            var value = 0
+            for (i in start until start + count) {
+                value = value * 10 + (timestamp[i] - '0')
+            }
+            return value
+        }
+    }
+}
@@ -25,13 +25,17 @@ import org.apache.kafka.connect.source.SourceRecord
 import org.radarbase.connect.upload.api.RecordDTO
 import org.radarbase.connect.upload.api.UploadBackendClient
 import org.radarbase.connect.upload.converter.ConverterFactory.Converter.Companion.END_OF_RECORD_KEY
+import org.radarbase.connect.upload.converter.csv.CsvOptions
 import org.radarbase.connect.upload.exception.ConversionFailedException
 import org.radarbase.connect.upload.exception.ConversionTemporarilyFailedException
+import org.radarbase.connect.upload.io.RangeReader
+import org.radarbase.connect.upload.io.RecordContentCache
+import org.radarbase.connect.upload.io.TempSpace
 import org.radarbase.connect.upload.logging.LogRepository
 import org.slf4j.LoggerFactory
 import java.io.IOException
 import java.io.InputStream
-import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
 
 /**
  * Convert records of a certain type to Avro records.
@@ -42,28 +46,84 @@ class RecordConverter(
     processorFactories: List<FileProcessorFactory>,
     private val client: UploadBackendClient,
     private val logRepository: LogRepository,
-    private val avroData: AvroData = createAvroData(),
+    private val structConverter: StructConverter = StructConverter(createAvroData()),
     allowUnmappedFiles: Boolean = false,
+    private val csvOptions: CsvOptions = CsvOptions(),
+    /** Whether files that are read by byte ranges are retrieved with range requests. */
+    private val rangeRequests: Boolean = false,
+    /** Maximum number of entries of an archive that are converted concurrently. */
+    private val archiveParallelism: Int = 1,
+    /** Cache of downloaded files, so they are not downloaded again when conversion is retried. */
+    private val contentCache: RecordContentCache? = null,
 ) : ConverterFactory.Converter {
     private val delegatingProcessor = DelegatingProcessor(
         preProcessorFactories = preProcessorFactories,
         processorFactories = processorFactories,
-        tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "upload-connector", "$sourceType-cache"),
+        tempDir = TempSpace.directory("$sourceType-cache"),
         generateTempFilePrefix = { context ->
             "record-${context.id}-"
         },
         allowUnmappedFiles = allowUnmappedFiles,
     )
 
+    /**
+     * Pool for chunks of large CSV files, so that they do not compete with other work on the
+     * common pool of the worker.
+     */
+    private val csvChunkPool: ForkJoinPool? = if (csvOptions.parallelChunkBytes > 0L) {
+        ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            { pool ->
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply {
+                    name = "upload-csv-$sourceType-$poolIndex"
+                }
+            },
+            null,
+            false,
+        )
+    } else {
+        null
+    }
+
+    private val partition: Map<String, Any> = mapOf(
+        "source-type" to sourceType,
+    )
+
     override fun convert(
         record: RecordDTO,
         produce: (SourceRecord) -> Unit,
     ) {
-        convertStream(
+        var contexts = createContexts(record)
+        if (rangeRequests) {
+            contexts = contexts.map { context ->
+                if (contentCache?.contains(context.id, context.contents) == true) {
+                    // reading the cached file is faster than any range request
+                    context
+                } else {
+                    context.copy(
+                        rangeReader = RangeReader { range -> client.retrieveFileRange(record, context.fileName, range) },
+                    )
+                }
+            }
+        }
+        convertContexts(
             record,
+            contexts,
             openStream = { context, mapStream ->
-                client.retrieveFile(context.record, context.fileName) { body ->
-                    mapStream(body.byteStream())
+                if (delegatingProcessor.readsRanges(context)) {
+                    // the processor retrieves the byte ranges that it needs
+                    mapStream(InputStream.nullInputStream())
+                } else {
+                    val download: ((InputStream) -> Unit) -> Unit = { handling ->
+                        client.retrieveFile(context.record, context.fileName) { body ->
+                            handling(body.byteStream())
+                        }
+                    }
+                    if (contentCache != null) {
+                        contentCache.read(context.id, context.contents, mapStream, download)
+                    } else {
+                        download(mapStream)
+                    }
                 }
             },
             produce,
@@ -74,9 +134,24 @@ class RecordConverter(
         record: RecordDTO,
         openStream: (ConverterFactory.ContentsContext, (InputStream) -> Unit) -> Unit,
         produce: (SourceRecord) -> Unit,
-    ) {
-        val contexts = ConverterFactory.ContentsContext.createAll(record, logRepository, avroData)
+    ) = convertContexts(record, createContexts(record), openStream, produce)
+
+    private fun createContexts(record: RecordDTO) = ConverterFactory.ContentsContext.createAll(
+        record,
+        logRepository,
+        structConverter.avroData,
+        csvOptions,
+        structConverter,
+        archiveParallelism,
+        csvChunkPool,
+    )
 
+    private fun convertContexts(
+        record: RecordDTO,
+        contexts: List<ConverterFactory.ContentsContext>,
+        openStream: (ConverterFactory.ContentsContext, (InputStream) -> Unit) -> Unit,
+        produce: (SourceRecord) -> Unit,
+    ) {
         try {
             // Cannot submit data immediately: we need to mark the last data record
             // Once a new data point is generated, we can submit the previous data record. After
@@ -103,9 +178,7 @@ class RecordConverter(
 
             val lastData = previousData
             if (lastData != null) {
-                @Suppress("UNCHECKED_CAST")
-                (lastData.sourceOffset() as MutableMap<String, Any>)[END_OF_RECORD_KEY] = true
-                produce(lastData)
+                produce(lastData.toEndOfRecord())
             }
         } catch (exe: IOException) {
             logger.error("Temporarily could not convert record ${record.id}", exe)
@@ -130,21 +203,36 @@ class RecordConverter(
         }
     }
 
-    override fun getPartition(): MutableMap<String, Any> = mutableMapOf(
-        "source-type" to sourceType,
-    )
+    override fun getPartition(): Map<String, Any> = partition
 
     override fun close() {
+        csvChunkPool?.shutdownNow()
         this.client.close()
     }
 
     companion object {
         private val logger = LoggerFactory.getLogger(RecordConverter::class.java)
 
-        fun createAvroData(): AvroData = AvroData(
+        /**
+         * Copy of the record with a source offset that marks it as the last record. Other
+         * records share a single immutable offset.
+         */
+        private fun SourceRecord.toEndOfRecord(): SourceRecord = SourceRecord(
+            sourcePartition(),
+            sourceOffset() + (END_OF_RECORD_KEY to true),
+            topic(),
+            kafkaPartition(),
+            keySchema(),
+            key(),
+            valueSchema(),
+            value(),
+            timestamp(),
+        )
+
+        fun createAvroData(schemaCacheSize: Int = 20): AvroData = AvroData(
             AvroDataConfig.Builder()
                 .with(AvroDataConfig.CONNECT_META_DATA_CONFIG, false)
-                .with(AvroDataConfig.SCHEMAS_CACHE_SIZE_CONFIG, 20)
+                .with(AvroDataConfig.SCHEMAS_CACHE_SIZE_CONFIG, schemaCacheSize)
                 .with(AvroDataConfig.ENHANCED_AVRO_SCHEMA_SUPPORT_CONFIG, true)
                 .build(),
         )
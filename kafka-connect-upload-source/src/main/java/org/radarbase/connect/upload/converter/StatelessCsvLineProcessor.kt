@@ -17,6 +17,8 @@
 package org.radarbase.connect.upload.converter
 
 import org.radarbase.connect.upload.converter.csv.CsvLineProcessorFactory
+import org.radarbase.connect.upload.converter.csv.CsvLineProcessorFactory.CsvLineProcessor.Companion.checkLine
+import org.radarbase.connect.upload.converter.csv.CsvRow
 
 /**
  * Simple Processor for one line to one record of a single topic conversion.
@@ -36,6 +38,28 @@ abstract class StatelessCsvLineProcessor : CsvLineProcessorFactory {
 
     fun time(line: Map<String, String>): Double = timeFieldParser.time(line)
 
+    fun time(row: CsvRow): Double = timeFieldParser.time(row)
+
+    /** Value of [column] parsed as a float with [FastNumberParser]. */
+    protected fun Map<String, String>.floatValue(column: String): Float =
+        FastNumberParser.parseFloat(getValue(column))
+
+    /** Value of [column] parsed as a double with [FastNumberParser]. */
+    protected fun Map<String, String>.doubleValue(column: String): Double =
+        FastNumberParser.parseDouble(getValue(column))
+
+    /** Value of [column] parsed as a long with [FastNumberParser]. */
+    protected fun Map<String, String>.longValue(column: String): Long =
+        FastNumberParser.parseLong(getValue(column))
+
+    /** Value of [column] parsed as an int with [FastNumberParser]. */
+    protected fun Map<String, String>.intValue(column: String): Int =
+        FastNumberParser.parseInt(getValue(column))
+
+    /** Value of [column] parsed as a boolean with [FastNumberParser]. */
+    protected fun Map<String, String>.booleanValue(column: String): Boolean =
+        FastNumberParser.parseBoolean(getValue(column))
+
     open fun lineConversion(
         line: Map<String, String>,
         timeReceived: Double,
@@ -49,19 +73,53 @@ abstract class StatelessCsvLineProcessor : CsvLineProcessorFactory {
         return if (conversion != null) sequenceOf(conversion) else emptySequence()
     }
 
+    /**
+     * Convert a [row] without creating a map for each line. [columns] contains the index in
+     * [row] of each column of [header], in the same order. By default, this converts the row
+     * to a map and calls [lineConversions].
+     */
+    open fun rowConversion(
+        row: CsvRow,
+        columns: IntArray,
+        timeReceived: Double,
+    ): Sequence<TopicData> = lineConversions(row.toMap(), timeReceived)
+
     override fun createLineProcessor(
         context: ConverterFactory.ContentsContext,
     ): CsvLineProcessorFactory.CsvLineProcessor {
-        return Processor(context) { l, t -> lineConversions(l, t) }
+        return Processor(
+            context,
+            header,
+            conversion = { l, t -> lineConversions(l, t) },
+            rowConversion = { r, c, t -> this@StatelessCsvLineProcessor.rowConversion(r, c, t) },
+        )
     }
 
     internal class Processor(
         override val context: ConverterFactory.ContentsContext,
+        private val header: List<String>,
         private val conversion: Processor.(lineValues: Map<String, String>, timeReceived: Double) -> Sequence<TopicData>,
+        private val rowConversion: Processor.(row: CsvRow, columns: IntArray, timeReceived: Double) -> Sequence<TopicData>,
     ) : CsvLineProcessorFactory.CsvLineProcessor {
+        private var columns: IntArray? = null
+
+        override fun isRowValid(
+            header: List<String>,
+            row: CsvRow,
+        ): Boolean = context.checkLine(header, row.size, row.lineNumber) { row.hasEmptyValue() }
+
         override fun convertToRecord(
             lineValues: Map<String, String>,
             timeReceived: Double,
         ): Sequence<TopicData> = conversion(lineValues, timeReceived)
+
+        override fun convertRowToRecord(
+            row: CsvRow,
+            timeReceived: Double,
+        ): Sequence<TopicData> {
+            // a processor is created per file, so the header does not change
+            val rowColumns = columns ?: row.columnIndices(header).also { columns = it }
+            return rowConversion(row, rowColumns, timeReceived)
+        }
     }
 }
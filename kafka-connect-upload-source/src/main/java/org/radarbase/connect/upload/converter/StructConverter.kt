@@ -0,0 +1,217 @@
+package org.radarbase.connect.upload.converter
+
+import io.confluent.connect.avro.AvroData
+import org.apache.avro.generic.IndexedRecord
+import org.apache.kafka.connect.data.Field
+import org.apache.kafka.connect.data.SchemaAndValue
+import org.apache.kafka.connect.data.Struct
+import org.slf4j.LoggerFactory
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+import org.apache.avro.Schema as AvroSchema
+import org.apache.kafka.connect.data.Schema as ConnectSchema
+
+/**
+ * Converts Avro records to Kafka Connect structs. For each Avro record schema, a conversion
+ * plan is compiled once from the Connect schema of [avroData]. The plan copies record fields
+ * into a [Struct] by index, without walking the schemas for each value.
+ *
+ * Plans support primitive types, strings, enums, nested records, arrays and optional unions
+ * with null. Schemas with other types or with logical types are converted by [avroData] itself.
+ *
+ * At most [maxSchemas] plans are kept, evicting the least recently used plan. A single
+ * converter is meant to be shared by all converters of a task, and its cache statistics are
+ * available as [StructConverterMXBean].
+ */
+class StructConverter(
+    val avroData: AvroData,
+    private val maxSchemas: Int = DEFAULT_MAX_SCHEMAS,
+) : StructConverterMXBean {
+    private val plans = ConcurrentHashMap<AvroSchema, CachedPlan>()
+    private val useCounter = AtomicLong()
+    private val hits = LongAdder()
+    private val misses = LongAdder()
+    private val evictions = LongAdder()
+
+    init {
+        require(maxSchemas > 0) { "Schema cache size must be positive" }
+    }
+
+    /** Convert [record] to Connect data, the same as [AvroData.toConnectData]. */
+    fun toConnectData(record: IndexedRecord): SchemaAndValue {
+        val schema = record.schema
+        val plan = plan(schema)
+        return if (plan is RecordPlan) {
+            SchemaAndValue(plan.schema, plan.convert(record))
+        } else {
+            avroData.toConnectData(schema, record)
+        }
+    }
+
+    /** Compile plans for given record schemas ahead of their first use. */
+    fun prewarm(schemas: Collection<AvroSchema>) {
+        schemas.forEach { schema ->
+            plans.computeIfAbsent(schema) { CachedPlan(compilePlan(it)) }
+        }
+        evictLeastRecentlyUsed()
+    }
+
+    private fun plan(schema: AvroSchema): Plan {
+        val cached = plans[schema]
+        if (cached != null) {
+            hits.increment()
+            cached.lastUse = useCounter.incrementAndGet()
+            return cached.plan
+        }
+        misses.increment()
+        val plan = plans.computeIfAbsent(schema) { CachedPlan(compilePlan(it)) }
+        plan.lastUse = useCounter.incrementAndGet()
+        if (plans.size > maxSchemas) {
+            evictLeastRecentlyUsed()
+        }
+        return plan.plan
+    }
+
+    @Synchronized
+    private fun evictLeastRecentlyUsed() {
+        while (plans.size > maxSchemas) {
+            val (schema, cached) = plans.entries.minByOrNull { it.value.lastUse } ?: return
+            if (plans.remove(schema, cached)) {
+                evictions.increment()
+            }
+        }
+    }
+
+    override val hitCount: Long
+        get() = hits.sum()
+
+    override val missCount: Long
+        get() = misses.sum()
+
+    override val evictionCount: Long
+        get() = evictions.sum()
+
+    override val size: Int
+        get() = plans.size
+
+    private fun compilePlan(avroSchema: AvroSchema): Plan {
+        val connectSchema = avroData.toConnectSchema(avroSchema)
+        return try {
+            compileRecord(avroSchema, connectSchema)
+        } catch (ex: UnsupportedSchemaException) {
+            logger.debug("Converting {} with AvroData: {}", avroSchema.fullName, ex.message)
+            FallbackPlan
+        }
+    }
+
+    private fun compileRecord(avroSchema: AvroSchema, connectSchema: ConnectSchema): RecordPlan {
+        check(avroSchema, connectSchema, ConnectSchema.Type.STRUCT)
+        val fields = connectSchema.fields()
+        val positions = IntArray(fields.size)
+        val converters = arrayOfNulls<ValueConverter>(fields.size)
+        fields.forEachIndexed { i, field ->
+            val avroField = avroSchema.getField(field.name())
+                ?: throw UnsupportedSchemaException("field ${field.name()} is not in the Avro schema")
+            positions[i] = avroField.pos()
+            converters[i] = compileValue(avroField.schema(), field.schema())
+        }
+        return RecordPlan(connectSchema, fields.toTypedArray(), positions, converters)
+    }
+
+    /** Compile a converter for a value, or return null if the value can be copied as is. */
+    private fun compileValue(avroSchema: AvroSchema, connectSchema: ConnectSchema): ValueConverter? =
+        when (avroSchema.type) {
+            AvroSchema.Type.INT -> primitive(avroSchema, connectSchema, ConnectSchema.Type.INT32)
+            AvroSchema.Type.LONG -> primitive(avroSchema, connectSchema, ConnectSchema.Type.INT64)
+            AvroSchema.Type.FLOAT -> primitive(avroSchema, connectSchema, ConnectSchema.Type.FLOAT32)
+            AvroSchema.Type.DOUBLE -> primitive(avroSchema, connectSchema, ConnectSchema.Type.FLOAT64)
+            AvroSchema.Type.BOOLEAN -> primitive(avroSchema, connectSchema, ConnectSchema.Type.BOOLEAN)
+            AvroSchema.Type.STRING, AvroSchema.Type.ENUM -> {
+                check(avroSchema, connectSchema, ConnectSchema.Type.STRING)
+                ValueConverter { it.toString() }
+            }
+            AvroSchema.Type.RECORD -> {
+                val plan = compileRecord(avroSchema, connectSchema)
+                ValueConverter { plan.convert(it as IndexedRecord) }
+            }
+            AvroSchema.Type.ARRAY -> {
+                check(avroSchema, connectSchema, ConnectSchema.Type.ARRAY)
+                val elementConverter = compileValue(avroSchema.elementType, connectSchema.valueSchema())
+                ValueConverter { value ->
+                    val elements = value as Collection<*>
+                    elements.mapTo(ArrayList<Any?>(elements.size)) { element ->
+                        if (element == null || elementConverter == null) element else elementConverter.convert(element)
+                    }
+                }
+            }
+            AvroSchema.Type.UNION -> {
+                val types = avroSchema.types
+                val valueSchema = types.singleOrNull { it.type != AvroSchema.Type.NULL }
+                if (types.size != 2 || valueSchema == null || !connectSchema.isOptional) {
+                    throw UnsupportedSchemaException("union ${avroSchema.name} is not an optional value")
+                }
+                compileValue(valueSchema, connectSchema)
+            }
+            else -> throw UnsupportedSchemaException("type ${avroSchema.type} is not supported")
+        }
+
+    private fun primitive(
+        avroSchema: AvroSchema,
+        connectSchema: ConnectSchema,
+        type: ConnectSchema.Type,
+    ): ValueConverter? {
+        check(avroSchema, connectSchema, type)
+        return null
+    }
+
+    private fun check(avroSchema: AvroSchema, connectSchema: ConnectSchema, type: ConnectSchema.Type) {
+        if (avroSchema.logicalType != null) {
+            throw UnsupportedSchemaException("logical type ${avroSchema.logicalType.name} is not supported")
+        }
+        if (connectSchema.type() != type) {
+            throw UnsupportedSchemaException("${avroSchema.type} is mapped to ${connectSchema.type()} instead of $type")
+        }
+    }
+
+    private fun interface ValueConverter {
+        /** Convert a non-null Avro value. */
+        fun convert(value: Any): Any
+    }
+
+    private sealed interface Plan
+
+    private class CachedPlan(val plan: Plan) {
+        @Volatile
+        var lastUse: Long = 0L
+    }
+
+    private object FallbackPlan : Plan
+
+    private class RecordPlan(
+        val schema: ConnectSchema,
+        private val fields: Array<Field>,
+        /** Position in the Avro record of each field. */
+        private val positions: IntArray,
+        /** Converter of each field, or null if the value is copied as is. */
+        private val converters: Array<ValueConverter?>,
+    ) : Plan {
+        fun convert(record: IndexedRecord): Struct {
+            val struct = Struct(schema)
+            for (i in fields.indices) {
+                val value = record.get(positions[i])
+                val converter = converters[i]
+                struct.put(fields[i], if (value == null || converter == null) value else converter.convert(value))
+            }
+            return struct
+        }
+    }
+
+    private class UnsupportedSchemaException(message: String) : Exception(message)
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(StructConverter::class.java)
+
+        const val DEFAULT_MAX_SCHEMAS = 100
+    }
+}
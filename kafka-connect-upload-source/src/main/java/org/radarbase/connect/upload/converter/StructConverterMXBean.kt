@@ -0,0 +1,16 @@
+package org.radarbase.connect.upload.converter
+
+/** Statistics of the schema cache of a [StructConverter], exposed over JMX. */
+interface StructConverterMXBean {
+    /** Number of records whose schema was cached. */
+    val hitCount: Long
+
+    /** Number of records whose schema had to be converted. */
+    val missCount: Long
+
+    /** Number of schemas that were removed from the cache to make room for others. */
+    val evictionCount: Long
+
+    /** Number of schemas in the cache. */
+    val size: Int
+}
@@ -1,7 +1,7 @@
 package org.radarbase.connect.upload.converter
 
+import org.radarbase.connect.upload.converter.csv.CsvRow
 import java.time.Instant
-import java.time.ZoneOffset
 import java.time.format.DateTimeFormatter
 
 /** Parser for CSV time fields */
@@ -9,13 +9,21 @@ interface TimeFieldParser {
     val fieldName: String
 
     fun timeFromString(timestamp: String): Double
+
+    /** Parse a timestamp that may be a view on a CSV buffer. */
+    fun timeFromChars(timestamp: CharSequence): Double = timeFromString(timestamp.toString())
+
     fun time(line: Map<String, String>): Double =
         timeFromString(line.getValue(fieldName))
 
+    fun time(row: CsvRow): Double = timeFromChars(row.field(row.columnIndex(fieldName)))
+
     /** CSV timestamp parser, assuming that the timestamp is provided as milliseconds since the Unix Epoch. */
     class EpochMillisParser(override val fieldName: String = "TIMESTAMP") : TimeFieldParser {
-        override fun timeFromString(timestamp: String): Double =
-            timestamp.toDouble() / 1000.0
+        override fun timeFromString(timestamp: String): Double = timeFromChars(timestamp)
+
+        override fun timeFromChars(timestamp: CharSequence): Double =
+            FastNumberParser.parseDouble(timestamp) / 1000.0
     }
 
     /** CSV timestamp parser using given date-time format. */
@@ -25,10 +33,12 @@ interface TimeFieldParser {
                 .toEpochMilli() / 1000.0
 
         companion object {
-            fun String.formatTimeFieldParser(fieldName: String = "TIMESTAMP"): TimeFieldParser = DateFormatParser(
-                DateTimeFormatter.ofPattern(this).withZone(ZoneOffset.UTC),
-                fieldName,
-            )
+            /**
+             * Parser for UTC timestamps with this pattern. Fixed-layout patterns are compiled
+             * with [FixedLayoutTimeParser], other patterns use a [DateTimeFormatter].
+             */
+            fun String.formatTimeFieldParser(fieldName: String = "TIMESTAMP"): TimeFieldParser =
+                FixedLayoutTimeParser(this, fieldName)
         }
     }
 }
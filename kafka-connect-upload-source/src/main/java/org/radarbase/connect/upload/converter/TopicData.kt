@@ -11,14 +11,10 @@ data class TopicData(
     fun toSourceRecord(
         context: ConverterFactory.ContentsContext,
         partition: Map<String, Any>,
+        offset: Map<String, Any> = context.offset,
     ): SourceRecord {
         try {
-            val valRecord = context.avroData.toConnectData(value.schema, value)
-            val offset = mutableMapOf(
-                ConverterFactory.Converter.END_OF_RECORD_KEY to false,
-                ConverterFactory.Converter.RECORD_ID_KEY to context.id,
-                ConverterFactory.Converter.REVISION_KEY to context.metadata.revision,
-            )
+            val valRecord = context.structConverter.toConnectData(value)
             return SourceRecord(
                 partition,
                 offset,
@@ -26,6 +26,7 @@ import org.radarcns.connector.upload.altoida.AltoidaAcceleration
 class AltoidaAccelerationCsvProcessor(override val fileNameSuffix: String = "_ACC.csv") : StatelessCsvLineProcessor() {
     override val optional: Boolean = true
     override val header: List<String> = listOf("TIMESTAMP", "X", "Y", "Z")
+    override val supportsParallelChunks: Boolean = true
 
     override fun lineConversion(
         line: Map<String, String>,
@@ -35,9 +36,9 @@ class AltoidaAccelerationCsvProcessor(override val fileNameSuffix: String = "_AC
         value = AltoidaAcceleration(
             time(line),
             timeReceived,
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
         ),
     )
 }
@@ -26,6 +26,7 @@ import org.radarcns.connector.upload.altoida.AltoidaAttitude
 class AltoidaAttitudeCsvProcessor(override val fileNameSuffix: String = "_ATT.csv") : StatelessCsvLineProcessor() {
     override val optional: Boolean = true
     override val header: List<String> = listOf("TIMESTAMP", "PITCH", "ROLL", "YAW")
+    override val supportsParallelChunks: Boolean = true
 
     override fun lineConversion(
         line: Map<String, String>,
@@ -35,9 +36,9 @@ class AltoidaAttitudeCsvProcessor(override val fileNameSuffix: String = "_ATT.cs
         value = AltoidaAttitude(
             time(line),
             timeReceived,
-            line.getValue("PITCH").toFloat(),
-            line.getValue("ROLL").toFloat(),
-            line.getValue("YAW").toFloat(),
+            line.floatValue("PITCH"),
+            line.floatValue("ROLL"),
+            line.floatValue("YAW"),
         ),
     )
 }
@@ -19,6 +19,7 @@
 
 package org.radarbase.connect.upload.converter.altoida
 
+import org.apache.avro.Schema
 import org.radarbase.connect.upload.api.SourceTypeDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.FilePreProcessorFactory
@@ -30,10 +31,46 @@ import org.radarbase.connect.upload.converter.altoida.summary.AltoidaTestMetrics
 import org.radarbase.connect.upload.converter.archive.ArchiveProcessorFactory.Companion.zipFactory
 import org.radarbase.connect.upload.converter.csv.CsvFileProcessorFactory
 import org.radarbase.connect.upload.logging.LogRepository
+import org.radarcns.connector.upload.altoida.AltoidaAcceleration
+import org.radarcns.connector.upload.altoida.AltoidaAction
+import org.radarcns.connector.upload.altoida.AltoidaAttitude
+import org.radarcns.connector.upload.altoida.AltoidaBlink
+import org.radarcns.connector.upload.altoida.AltoidaDomainResult
+import org.radarcns.connector.upload.altoida.AltoidaEyeTracking
+import org.radarcns.connector.upload.altoida.AltoidaGravity
+import org.radarcns.connector.upload.altoida.AltoidaMagneticField
+import org.radarcns.connector.upload.altoida.AltoidaMetadata
+import org.radarcns.connector.upload.altoida.AltoidaObject
+import org.radarcns.connector.upload.altoida.AltoidaPath
+import org.radarcns.connector.upload.altoida.AltoidaRotation
+import org.radarcns.connector.upload.altoida.AltoidaSummary
+import org.radarcns.connector.upload.altoida.AltoidaSummaryMetrics
+import org.radarcns.connector.upload.altoida.AltoidaTap
+import org.radarcns.connector.upload.altoida.AltoidaTouch
 
 class AltoidaConverterFactory : ConverterFactory {
     override val sourceType: String = "altoida"
 
+    override val topicSchemas: Map<String, Schema> = mapOf(
+        "connect_upload_altoida_summary" to AltoidaSummary.getClassSchema(),
+        "connect_upload_altoida_domain_result" to AltoidaDomainResult.getClassSchema(),
+        "connect_upload_altoida_bit_metrics" to AltoidaSummaryMetrics.getClassSchema(),
+        "connect_upload_altoida_dot_metrics" to AltoidaSummaryMetrics.getClassSchema(),
+        "connect_upload_altoida_acceleration" to AltoidaAcceleration.getClassSchema(),
+        "connect_upload_altoida_action" to AltoidaAction.getClassSchema(),
+        "connect_upload_altoida_attitude" to AltoidaAttitude.getClassSchema(),
+        "connect_upload_altoida_blink" to AltoidaBlink.getClassSchema(),
+        "connect_upload_altoida_eye_tracking" to AltoidaEyeTracking.getClassSchema(),
+        "connect_upload_altoida_gravity" to AltoidaGravity.getClassSchema(),
+        "connect_upload_altoida_magnetic_field" to AltoidaMagneticField.getClassSchema(),
+        "connect_upload_altoida_object" to AltoidaObject.getClassSchema(),
+        "connect_upload_altoida_path" to AltoidaPath.getClassSchema(),
+        "connect_upload_altoida_rotation" to AltoidaRotation.getClassSchema(),
+        "connect_upload_altoida_tap" to AltoidaTap.getClassSchema(),
+        "connect_upload_altoida_touch" to AltoidaTouch.getClassSchema(),
+        "connect_upload_altoida_metadata" to AltoidaMetadata.getClassSchema(),
+    )
+
     override fun filePreProcessorFactories(
         settings: Map<String, String>,
         connectorConfig: SourceTypeDTO,
@@ -26,6 +26,7 @@ import org.radarcns.connector.upload.altoida.AltoidaMagneticField
 class AltoidaMagneticFieldCsvProcessor(override val fileNameSuffix: String = "_MAG.csv") : StatelessCsvLineProcessor() {
     override val optional: Boolean = true
     override val header: List<String> = listOf("TIMESTAMP", "X", "Y", "Z", "ACCURACY")
+    override val supportsParallelChunks: Boolean = true
 
     override fun lineConversion(
         line: Map<String, String>,
@@ -35,9 +36,9 @@ class AltoidaMagneticFieldCsvProcessor(override val fileNameSuffix: String = "_M
         AltoidaMagneticField(
             time(line),
             timeReceived,
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
             line["ACCURACY"],
         ),
     )
@@ -39,9 +39,9 @@ class AltoidaObjectCsvProcessor : StatelessCsvLineProcessor() {
             time(line),
             timeReceived,
             line["OBJ"],
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
         ),
     )
 }
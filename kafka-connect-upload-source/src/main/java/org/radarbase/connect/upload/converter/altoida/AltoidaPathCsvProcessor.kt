@@ -36,9 +36,9 @@ class AltoidaPathCsvProcessor(override val fileNameSuffix: String = "_PATH.csv")
         AltoidaPath(
             time(line),
             timeReceived,
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
         ),
     )
 }
@@ -27,6 +27,7 @@ class AltoidaRotationCsvProcessor : StatelessCsvLineProcessor() {
     override val fileNameSuffix: String = "_ROT.csv"
 
     override val header: List<String> = listOf("TIMESTAMP", "X", "Y", "Z")
+    override val supportsParallelChunks: Boolean = true
 
     override fun lineConversion(
         line: Map<String, String>,
@@ -36,9 +37,9 @@ class AltoidaRotationCsvProcessor : StatelessCsvLineProcessor() {
         AltoidaRotation(
             time(line),
             timeReceived,
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
         ),
     )
 }
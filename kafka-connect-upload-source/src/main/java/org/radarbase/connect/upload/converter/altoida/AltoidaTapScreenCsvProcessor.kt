@@ -33,8 +33,8 @@ class AltoidaTapScreenCsvProcessor : StatelessCsvLineProcessor() {
         AltoidaTap(
             time(line),
             timeReceived,
-            line.getValue("X").toDouble(),
-            line.getValue("Y").toDouble(),
+            line.doubleValue("X"),
+            line.doubleValue("Y"),
         ),
     )
 }
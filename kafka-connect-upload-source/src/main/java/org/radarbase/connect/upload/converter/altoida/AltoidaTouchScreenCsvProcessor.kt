@@ -32,12 +32,12 @@ class AltoidaTouchScreenCsvProcessor(override val fileNameSuffix: String = "_TOU
         value = AltoidaTouch(
             time(line),
             timeReceived,
-            line.getValue("X").toDouble(),
-            line.getValue("Y").toDouble(),
-            line.getValue("SURFACE").toDouble(),
-            line.getValue("ACC").toDouble(),
-            line.getValue("COMBINED").toDouble(),
-            line.getValue("HIT").toBoolean(),
+            line.doubleValue("X"),
+            line.doubleValue("Y"),
+            line.doubleValue("SURFACE"),
+            line.doubleValue("ACC"),
+            line.doubleValue("COMBINED"),
+            line.booleanValue("HIT"),
         ),
     )
 }
@@ -29,11 +29,11 @@ class AltoidaSummaryProcessor : StatelessCsvLineProcessor() {
                 timeFieldParser.time(line),
                 timeReceived,
                 line["LABEL"],
-                line.getValue("AGE").toInt(),
-                line.getValue("YEARSOFEDUCATION").toInt(),
-                line.getValue("GENDER").toInt().toGender(),
-                line.getValue("CLASS").toInt().classify(),
-                line.getValue("NMI").toDouble(),
+                line.intValue("AGE"),
+                line.intValue("YEARSOFEDUCATION"),
+                line.intValue("GENDER").toGender(),
+                line.intValue("CLASS").classify(),
+                line.doubleValue("NMI"),
             ),
         )
 
@@ -142,38 +142,38 @@ class AltoidaTestMetricsProcessor(private val type: AltoidaTestCategory, val top
         return AltoidaSummaryMetrics(
             time(line),
             timeReceived,
-            line.getValue("${prefixAR}HIGHTONEREACTIONTIMES").toFloat(),
-            line.getValue("${prefixAR}HIGHTONETOUCHACCURACY").toFloat(),
-            if (type === DOT) line.getValue("${prefixAR}NMRREACTIONSTOLOWTONE").toInt() else null,
-            line.getValue("${prefixAR}IGNOREDHIGHTONEPERCENTAGE").toFloat(),
-            line.getValue("${prefixAR}PREMATURETONEBUTTONPRESSES").toInt(),
-            line.getValue("${prefixAR}RANDOMSCREENPRESSESDURINGPLACEMENT").toInt(),
-            line.getValue("${prefixAR}RANDOMSCREENPRESSESDURINGSEARCH").toInt(),
-            line.getValue("${prefixAR}TOOMUCHMOVEMENTCOUNT").toInt(),
-            line.getValue("${prefixAR}FINDBETTERPLACECOUNT").toFloat(),
-            line.getValue("${prefixAR}INTROREADTIMES").toFloat(),
-            line.getValue("${prefixAR}INTROREADTIME1").toFloat(),
-            line.getValue("${prefixAR}INTROREADTIME2").toFloat(),
-            line.getValue("${prefixAR}PLACEDELAYSAVERAGE").toFloat(),
-            line.getValue("${prefixAR}SPOTALREADYTAKENCOUNT").toInt(),
+            line.floatValue("${prefixAR}HIGHTONEREACTIONTIMES"),
+            line.floatValue("${prefixAR}HIGHTONETOUCHACCURACY"),
+            if (type === DOT) line.intValue("${prefixAR}NMRREACTIONSTOLOWTONE") else null,
+            line.floatValue("${prefixAR}IGNOREDHIGHTONEPERCENTAGE"),
+            line.intValue("${prefixAR}PREMATURETONEBUTTONPRESSES"),
+            line.intValue("${prefixAR}RANDOMSCREENPRESSESDURINGPLACEMENT"),
+            line.intValue("${prefixAR}RANDOMSCREENPRESSESDURINGSEARCH"),
+            line.intValue("${prefixAR}TOOMUCHMOVEMENTCOUNT"),
+            line.floatValue("${prefixAR}FINDBETTERPLACECOUNT"),
+            line.floatValue("${prefixAR}INTROREADTIMES"),
+            line.floatValue("${prefixAR}INTROREADTIME1"),
+            line.floatValue("${prefixAR}INTROREADTIME2"),
+            line.floatValue("${prefixAR}PLACEDELAYSAVERAGE"),
+            line.intValue("${prefixAR}SPOTALREADYTAKENCOUNT"),
             line.getTrials(prefixAR),
             line.getTrialMeans(prefixAR),
-            line.getValue("${prefixAR}FINDFAILCOUNT").toFloat(),
-            line.getValue("${prefixAR}FINDSKIPDURATIONS").toFloat(),
-            line.getValue("${prefixAR}SKIPBUTTONCOUNT").toFloat(),
-            line.getValue("${prefixAR}COUNTDOWNFAIL").toFloat(),
-            line.getValue("${prefixAR}STEPCOUNTFINDPLACERATIO").toFloat(),
-            line.getValue("${prefixAR}PLACINGMEANSTEPDELAY").toFloat(),
-            line.getValue("${prefixAR}FINDINGMEANSTEPDELAY").toFloat(),
-            line.getValue("${prefixAR}PLACINGSTEPVARIANCE").toFloat(),
-            line.getValue("${prefixAR}FINDINGSTEPVARIANCE").toFloat(),
-            line.getValue("${prefixAR}PLACINGNOTWALKINGTIME").toFloat(),
-            line.getValue("${prefixAR}FINDINGNOTWALKINGTIME").toFloat(),
-            line.getValue("${prefixAR}SHOCKCOUNT").toFloat(),
-            line.getValue("${prefixAR}ACCVARIANCEX").toFloat(),
-            line.getValue("${prefixAR}ACCVARIANCEY").toFloat(),
-            line.getValue("${prefixAR}ACCVARIANCEZ").toFloat(),
-            line.getValue("DOMINANTHAND").toFloat(),
+            line.floatValue("${prefixAR}FINDFAILCOUNT"),
+            line.floatValue("${prefixAR}FINDSKIPDURATIONS"),
+            line.floatValue("${prefixAR}SKIPBUTTONCOUNT"),
+            line.floatValue("${prefixAR}COUNTDOWNFAIL"),
+            line.floatValue("${prefixAR}STEPCOUNTFINDPLACERATIO"),
+            line.floatValue("${prefixAR}PLACINGMEANSTEPDELAY"),
+            line.floatValue("${prefixAR}FINDINGMEANSTEPDELAY"),
+            line.floatValue("${prefixAR}PLACINGSTEPVARIANCE"),
+            line.floatValue("${prefixAR}FINDINGSTEPVARIANCE"),
+            line.floatValue("${prefixAR}PLACINGNOTWALKINGTIME"),
+            line.floatValue("${prefixAR}FINDINGNOTWALKINGTIME"),
+            line.floatValue("${prefixAR}SHOCKCOUNT"),
+            line.floatValue("${prefixAR}ACCVARIANCEX"),
+            line.floatValue("${prefixAR}ACCVARIANCEY"),
+            line.floatValue("${prefixAR}ACCVARIANCEZ"),
+            line.floatValue("DOMINANTHAND"),
             line.getWalkingTestAggregate(prefixMotor, Circle),
             line.getWalkingTestAggregate(prefixMotor, Square),
             line.getWalkingTestAggregate(prefixMotor, Serpentine),
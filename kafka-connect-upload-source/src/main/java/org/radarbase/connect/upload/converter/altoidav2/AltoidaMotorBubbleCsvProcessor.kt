@@ -36,8 +36,8 @@ class AltoidaMotorBubbleCsvProcessor() : StatelessCsvLineProcessor() {
         AltoidaMotorBubble(
             time(line),
             timeReceived,
-            line.getValue("X").toDouble(),
-            line.getValue("Y").toDouble(),
+            line.doubleValue("X"),
+            line.doubleValue("Y"),
         ),
     )
 }
@@ -32,17 +32,17 @@ class AltoidaDomainResultProcessor : StatelessCsvLineProcessor() {
             AltoidaDomainResult(
                 time(line),
                 timeReceived,
-                line.getValue("DOMAINPERCENTILE_PERCEPTUALMOTORCOORDINATION").toFloat(),
-                line.getValue("DOMAINPERCENTILE_COMPLEXATTENTION").toFloat(),
-                line.getValue("DOMAINPERCENTILE_COGNITIVEPROCESSINGSPEED").toFloat(),
-                line.getValue("DOMAINPERCENTILE_INHIBITION").toFloat(),
-                line.getValue("DOMAINPERCENTILE_FLEXIBILITY").toFloat(),
-                line.getValue("DOMAINPERCENTILE_VISUALPERCEPTION").toFloat(),
-                line.getValue("DOMAINPERCENTILE_PLANNING").toFloat(),
-                line.getValue("DOMAINPERCENTILE_PROSPECTIVEMEMORY").toFloat(),
-                line.getValue("DOMAINPERCENTILE_SPATIALMEMORY").toFloat(),
-                line.getValue("DOMAINPERCENTILE_EYEMOVEMENT").toFloat(),
-                line.getValue("DOMAINPERCENTILE_SPEECH").toFloat(),
+                line.floatValue("DOMAINPERCENTILE_PERCEPTUALMOTORCOORDINATION"),
+                line.floatValue("DOMAINPERCENTILE_COMPLEXATTENTION"),
+                line.floatValue("DOMAINPERCENTILE_COGNITIVEPROCESSINGSPEED"),
+                line.floatValue("DOMAINPERCENTILE_INHIBITION"),
+                line.floatValue("DOMAINPERCENTILE_FLEXIBILITY"),
+                line.floatValue("DOMAINPERCENTILE_VISUALPERCEPTION"),
+                line.floatValue("DOMAINPERCENTILE_PLANNING"),
+                line.floatValue("DOMAINPERCENTILE_PROSPECTIVEMEMORY"),
+                line.floatValue("DOMAINPERCENTILE_SPATIALMEMORY"),
+                line.floatValue("DOMAINPERCENTILE_EYEMOVEMENT"),
+                line.floatValue("DOMAINPERCENTILE_SPEECH"),
             ),
         )
 
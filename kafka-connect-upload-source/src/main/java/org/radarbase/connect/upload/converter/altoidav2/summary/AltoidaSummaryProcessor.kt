@@ -29,8 +29,8 @@ class AltoidaSummaryProcessor : StatelessCsvLineProcessor() {
                 null,
                 null,
                 GenderType.UNKNOWN,
-                line.getValue("CLASS").toInt().classify(),
-                line.getValue("NMI").toDouble(),
+                line.intValue("CLASS").classify(),
+                line.doubleValue("NMI"),
             ),
         )
 
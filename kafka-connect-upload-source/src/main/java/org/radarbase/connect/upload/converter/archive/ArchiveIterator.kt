@@ -5,6 +5,13 @@ import java.io.Closeable
 import java.io.InputStream
 
 interface ArchiveIterator : Closeable {
+    /**
+     * Whether the streams of multiple entries can be read at the same time, on other threads
+     * than the one iterating over the files.
+     */
+    val supportsConcurrentEntries: Boolean
+        get() = false
+
     fun files(
         entryFilter: (ArchiveEntry) -> Boolean = { true },
     ): Sequence<Pair<ArchiveEntry, InputStream>>
@@ -1,5 +1,6 @@
 package org.radarbase.connect.upload.converter.archive
 
+import org.apache.commons.compress.archivers.ArchiveEntry
 import org.radarbase.connect.upload.api.ContentsDTO
 import org.radarbase.connect.upload.api.RecordDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
@@ -9,14 +10,26 @@ import org.radarbase.connect.upload.converter.FileProcessor
 import org.radarbase.connect.upload.converter.FileProcessorFactory
 import org.radarbase.connect.upload.converter.TopicData
 import org.radarbase.connect.upload.converter.archive.SevenZipInputStreamIterator.Companion.sevenZipIteratorFactory
-import org.radarbase.connect.upload.converter.archive.ZipInputStreamIterator.Companion.zipIteratorFactory
+import org.radarbase.connect.upload.converter.archive.ZipChannelIterator.Companion.zipChannelIteratorFactory
+import org.radarbase.connect.upload.converter.archive.ZipStreamIterator.Companion.zipStreamIteratorFactory
 import org.radarbase.connect.upload.exception.ConversionFailedException
+import org.radarbase.connect.upload.io.RangeSeekableByteChannel
+import org.radarbase.connect.upload.io.TempFile.Companion.spool
+import org.radarbase.connect.upload.io.TempSpace
 import java.io.IOException
 import java.io.InputStream
+import java.nio.channels.SeekableByteChannel
 import java.nio.file.Path
-import java.nio.file.Paths
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 typealias ArchiveIteratorFactory = (InputStream, Path) -> ArchiveIterator
+typealias ChannelArchiveIteratorFactory = (SeekableByteChannel) -> ArchiveIterator
 
 open class ArchiveProcessorFactory(
     sourceType: String,
@@ -25,12 +38,20 @@ open class ArchiveProcessorFactory(
     allowUnmappedFiles: Boolean = false,
     private val extension: String,
     private val archiveIteratorFactory: ArchiveIteratorFactory,
+    /** Whether the archive format needs random access, so it is read from a temporary file. */
+    private val isRandomAccess: Boolean = false,
+    /**
+     * Reader of archives through a seekable channel. If set, archives that can be read with
+     * range requests only download the parts that are needed.
+     */
+    private val channelIteratorFactory: ChannelArchiveIteratorFactory? = null,
+    /**
+     * Whether entries may be converted concurrently, if enabled in the connector settings.
+     * Disable this if processing depends on thread-bound state set in [beforeProcessing].
+     */
+    private val allowConcurrentEntries: Boolean = true,
 ) : FileProcessorFactory {
-    private val cacheDir: Path = Paths.get(
-        System.getProperty("java.io.tmpdir"),
-        "upload-connector",
-        "$sourceType-$extension-cache",
-    )
+    private val cacheDir: Path = TempSpace.directory("$sourceType-$extension-cache")
 
     private val delegatingProcessor = DelegatingProcessor(
         preProcessorFactories = entryPreProcessors,
@@ -57,6 +78,12 @@ open class ArchiveProcessorFactory(
 
     inner class ArchiveFileProcessor(private val record: RecordDTO) :
         FileProcessor {
+        override val requiresRandomAccess: Boolean
+            get() = isRandomAccess
+
+        override val prefersRangeReads: Boolean
+            get() = channelIteratorFactory != null
+
         override fun processData(
             context: ConverterFactory.ContentsContext,
             inputStream: InputStream,
@@ -65,21 +92,17 @@ open class ArchiveProcessorFactory(
             context.logger.info("Retrieved archive content from filename ${context.fileName}")
             beforeProcessing(context)
             try {
-                archiveIteratorFactory(inputStream, cacheDir).use { iterator ->
-                    iterator.files { entryFilter(it.name.trim()) }
+                openIterator(context, inputStream).use { iterator ->
+                    val entries = iterator.files { entryFilter(it.name.trim()) }
                         .ifEmpty { throw ConversionFailedException("No archive entry found from ${context.fileName}") }
-                        .forEach { (entry, inputStream) ->
-                            delegatingProcessor.processData(
-                                context.copy(
-                                    contents = ContentsDTO(
-                                        fileName = entry.name.trim(),
-                                        size = entry.size,
-                                    ),
-                                ),
-                                inputStream,
-                                produce,
-                            )
+                    val parallelism = if (allowConcurrentEntries) context.archiveParallelism else 1
+                    if (parallelism > 1) {
+                        processConcurrently(context, entries, parallelism, iterator.supportsConcurrentEntries, produce)
+                    } else {
+                        entries.forEach { (entry, entryStream) ->
+                            delegatingProcessor.processData(entryContext(context, entry), entryStream, produce)
                         }
+                    }
                 }
             } catch (exe: IOException) {
                 context.logger.error("Failed to process archive input from record ${record.id}", exe)
@@ -91,11 +114,117 @@ open class ArchiveProcessorFactory(
                 afterProcessing(context)
             }
         }
+
+        /**
+         * Convert at most [parallelism] entries at a time on [entryExecutor]. The records of
+         * each entry are buffered and produced in entry order once all earlier entries are
+         * done. If the archive cannot be read concurrently, each entry is first spooled to
+         * memory or a temporary file while the previous entries are converted.
+         */
+        private fun processConcurrently(
+            context: ConverterFactory.ContentsContext,
+            entries: Sequence<Pair<ArchiveEntry, InputStream>>,
+            parallelism: Int,
+            supportsConcurrentEntries: Boolean,
+            produce: (TopicData) -> Unit,
+        ) {
+            val failed = AtomicBoolean(false)
+            val pending = ArrayDeque<Future<List<TopicData>>>(parallelism)
+            try {
+                entries.forEach { (entry, entryStream) ->
+                    if (pending.size >= parallelism) {
+                        pending.removeFirst().await().forEach(produce)
+                    }
+                    val entryContext = entryContext(context, entry)
+                    val spool = if (supportsConcurrentEntries) {
+                        null
+                    } else {
+                        entryStream.spool(cacheDir, "record-entry-${context.id}-")
+                    }
+                    pending.addLast(
+                        entryExecutor.submit(
+                            Callable {
+                                val records = ArrayList<TopicData>()
+                                try {
+                                    if (!failed.get()) {
+                                        delegatingProcessor.processData(
+                                            entryContext,
+                                            spool?.inputStream() ?: entryStream,
+                                            records::add,
+                                        )
+                                    }
+                                } catch (ex: Throwable) {
+                                    failed.set(true)
+                                    throw ex
+                                } finally {
+                                    spool?.close()
+                                }
+                                records
+                            },
+                        ),
+                    )
+                }
+                while (pending.isNotEmpty()) {
+                    pending.removeFirst().await().forEach(produce)
+                }
+            } finally {
+                // let started entries finish before the archive is closed
+                failed.set(true)
+                pending.forEach { future ->
+                    try {
+                        future.get()
+                    } catch (ex: ExecutionException) {
+                        // already failed
+                    }
+                }
+            }
+        }
+
+        private fun Future<List<TopicData>>.await(): List<TopicData> = try {
+            get()
+        } catch (ex: ExecutionException) {
+            throw ex.cause ?: ex
+        }
+
+        private fun entryContext(
+            context: ConverterFactory.ContentsContext,
+            entry: ArchiveEntry,
+        ) = context.copy(
+            contents = ContentsDTO(
+                fileName = entry.name.trim(),
+                size = entry.size,
+            ),
+            rangeReader = null,
+        )
+
+        private fun openIterator(
+            context: ConverterFactory.ContentsContext,
+            inputStream: InputStream,
+        ): ArchiveIterator {
+            val rangeReader = context.rangeReader
+            val size = context.contents.size
+            return if (channelIteratorFactory != null && rangeReader != null && size != null && size > 0) {
+                context.logger.debug("Reading archive ${context.fileName} with range requests")
+                inputStream.close()
+                channelIteratorFactory.invoke(RangeSeekableByteChannel(size, rangeReader = rangeReader))
+            } else {
+                archiveIteratorFactory(inputStream, cacheDir)
+            }
+        }
     }
 
     companion object {
         private val nonAlphaNumericRegex = "\\W+".toRegex()
 
+        private val entryThreadCount = AtomicInteger(0)
+
+        /** Threads for converting archive entries concurrently. */
+        private val entryExecutor: ExecutorService = Executors.newCachedThreadPool { runnable ->
+            Thread(runnable, "upload-archive-entry-${entryThreadCount.incrementAndGet()}").apply {
+                isDaemon = true
+            }
+        }
+
         fun zipFactory(
             sourceType: String,
             entryPreProcessors: List<FilePreProcessorFactory> = emptyList(),
@@ -107,7 +236,8 @@ open class ArchiveProcessorFactory(
             entryProcessors = entryProcessors,
             allowUnmappedFiles = allowUnmappedFiles,
             extension = ".zip",
-            archiveIteratorFactory = zipIteratorFactory,
+            archiveIteratorFactory = zipStreamIteratorFactory,
+            channelIteratorFactory = zipChannelIteratorFactory,
         )
 
         fun sevenZipFactory(
@@ -122,6 +252,7 @@ open class ArchiveProcessorFactory(
             allowUnmappedFiles = allowUnmappedFiles,
             extension = ".7z",
             archiveIteratorFactory = sevenZipIteratorFactory,
+            isRandomAccess = true,
         )
     }
 }
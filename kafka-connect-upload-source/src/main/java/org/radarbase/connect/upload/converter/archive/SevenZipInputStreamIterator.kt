@@ -2,9 +2,10 @@ package org.radarbase.connect.upload.converter.archive
 
 import org.apache.commons.compress.archivers.ArchiveEntry
 import org.apache.commons.compress.archivers.sevenz.SevenZFile
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel
 import org.radarbase.connect.upload.exception.ConversionFailedException
-import org.radarbase.connect.upload.io.TempFile
-import org.radarbase.connect.upload.io.TempFile.Companion.copyToTempFile
+import org.radarbase.connect.upload.io.TempFile.Companion.spool
+import org.radarbase.connect.upload.io.TempFile.Spool
 import java.io.IOException
 import java.io.InputStream
 import java.nio.file.Files
@@ -14,15 +15,21 @@ class SevenZipInputStreamIterator(
     input: InputStream,
     tempDir: Path,
 ) : ArchiveIterator {
-    private val file: TempFile
+    /** Contents of the archive, in memory or in a temporary file. */
+    private val spool: Spool = input.spool(tempDir, "7zip")
     private val sevenZFile: SevenZFile
 
     init {
-        file = input.copyToTempFile(tempDir, "7zip")
-        input.close()
+        val bytes = spool.bytes
         sevenZFile = try {
-            SevenZFile.builder().setSeekableByteChannel(Files.newByteChannel(file.tempFile)).get()
+            val channel = if (bytes != null) {
+                SeekableInMemoryByteChannel(bytes)
+            } else {
+                Files.newByteChannel(checkNotNull(spool.path))
+            }
+            SevenZFile.builder().setSeekableByteChannel(channel).get()
         } catch (ex: IOException) {
+            spool.close()
             throw ConversionFailedException("Cannot open 7zip file", ex)
         }
     }
@@ -42,9 +49,7 @@ class SevenZipInputStreamIterator(
             }
 
     override fun close() {
-        file.use {
-            sevenZFile.close()
-        }
+        spool.use { sevenZFile.close() }
     }
 
     companion object {
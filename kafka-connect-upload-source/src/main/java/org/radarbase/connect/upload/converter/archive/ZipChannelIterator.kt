@@ -0,0 +1,55 @@
+package org.radarbase.connect.upload.converter.archive
+
+import org.apache.commons.compress.archivers.ArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipFile
+import org.radarbase.connect.upload.exception.ConversionFailedException
+import java.io.IOException
+import java.io.InputStream
+import java.nio.channels.SeekableByteChannel
+
+/**
+ * Reads a Zip archive from a seekable [channel] using its central directory. Only the central
+ * directory and the entries that are requested are read from the channel.
+ */
+class ZipChannelIterator(
+    channel: SeekableByteChannel,
+) : ArchiveIterator {
+    private val zipFile: ZipFile = try {
+        ZipFile.builder()
+            .setSeekableByteChannel(channel)
+            // do not read the local header of every entry when opening the archive
+            .setIgnoreLocalFileHeader(true)
+            .get()
+    } catch (ex: IOException) {
+        channel.close()
+        throw ConversionFailedException("Cannot open Zip file", ex)
+    }
+
+    override val supportsConcurrentEntries: Boolean
+        get() = true
+
+    override fun files(
+        entryFilter: (ArchiveEntry) -> Boolean,
+    ): Sequence<Pair<ArchiveEntry, InputStream>> =
+        zipFile.entries
+            .asSequence()
+            .filter { entry -> !entry.isDirectory && entryFilter(entry) }
+            .map { entry ->
+                val inputStream = try {
+                    zipFile.getInputStream(entry)
+                } catch (ex: IOException) {
+                    throw ConversionFailedException("Cannot read Zip file", ex)
+                }
+                entry to inputStream
+            }
+
+    override fun close() {
+        zipFile.close()
+    }
+
+    companion object {
+        val zipChannelIteratorFactory: ChannelArchiveIteratorFactory = { channel ->
+            ZipChannelIterator(channel)
+        }
+    }
+}
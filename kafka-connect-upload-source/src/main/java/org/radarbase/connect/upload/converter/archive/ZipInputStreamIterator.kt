@@ -4,6 +4,7 @@ import org.apache.commons.compress.archivers.ArchiveEntry
 import org.radarbase.connect.upload.exception.ConversionFailedException
 import org.radarbase.connect.upload.io.TempFile
 import org.radarbase.connect.upload.io.TempFile.Companion.copyToTempFile
+import org.radarbase.connect.upload.io.TempFile.TempFileInputStream
 import java.io.InputStream
 import java.nio.file.Path
 import java.util.zip.ZipException
@@ -13,19 +14,29 @@ class ZipInputStreamIterator(
     input: InputStream,
     tempDir: Path,
 ) : ArchiveIterator {
-    private val tempFile: TempFile
+    /** Temporary copy of the input, or null if the input is already a temporary file. */
+    private val tempFile: TempFile?
     private val zipFile: ZipFile
 
     init {
-        tempFile = input.copyToTempFile(tempDir, "zip")
+        val path = if (input is TempFileInputStream) {
+            tempFile = null
+            input.path
+        } else {
+            tempFile = input.copyToTempFile(tempDir, "zip")
+            tempFile.tempFile
+        }
         input.close()
         zipFile = try {
-            ZipFile(tempFile.tempFile.toFile())
+            ZipFile(path.toFile())
         } catch (ex: ZipException) {
             throw ConversionFailedException("Cannot open Zip file", ex)
         }
     }
 
+    override val supportsConcurrentEntries: Boolean
+        get() = true
+
     override fun files(
         entryFilter: (ArchiveEntry) -> Boolean,
     ): Sequence<Pair<ArchiveEntry, InputStream>> =
@@ -43,7 +54,9 @@ class ZipInputStreamIterator(
             }
 
     override fun close() {
-        tempFile.use {
+        if (tempFile != null) {
+            tempFile.use { zipFile.close() }
+        } else {
             zipFile.close()
         }
     }
@@ -0,0 +1,101 @@
+package org.radarbase.connect.upload.converter.archive
+
+import org.apache.commons.compress.archivers.ArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream
+import org.radarbase.connect.upload.exception.ConversionFailedException
+import org.radarbase.connect.upload.io.TempFile.TempFileInputStream
+import java.io.BufferedInputStream
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Reads the entries of a Zip archive while it is being downloaded, using the local file
+ * headers instead of the central directory at the end of the archive. Each entry stream is
+ * only valid until the next entry is requested.
+ */
+class ZipStreamIterator(
+    input: InputStream,
+) : ArchiveIterator {
+    private val zipStream = ZipArchiveInputStream(input, Charsets.UTF_8.name(), true, true)
+
+    override fun files(
+        entryFilter: (ArchiveEntry) -> Boolean,
+    ): Sequence<Pair<ArchiveEntry, InputStream>> =
+        generateSequence { nextEntry() }
+            .filter { entry -> !entry.isDirectory && entryFilter(entry) }
+            .map { entry ->
+                if (!zipStream.canReadEntryData(entry)) {
+                    throw ConversionFailedException("Cannot read Zip entry ${entry.name} from stream")
+                }
+                // processors may close the entry stream, which should not close the archive
+                val entryStream: InputStream = object : FilterInputStream(zipStream) {
+                    override fun close() = Unit
+                }
+                entry to entryStream
+            }
+
+    private fun nextEntry(): ArchiveEntry? = try {
+        zipStream.nextEntry
+    } catch (ex: IOException) {
+        throw ConversionFailedException("Cannot read Zip file", ex)
+    }
+
+    override fun close() {
+        zipStream.close()
+    }
+
+    companion object {
+        private const val LOCAL_HEADER_SIZE = 30
+        private const val LOCAL_HEADER_SIGNATURE = 0x04034b50
+        private const val DATA_DESCRIPTOR_FLAG = 0x08
+        private const val METHOD_STORED = 0
+        private const val METHOD_DEFLATED = 8
+
+        /**
+         * Read Zip archives as a stream when their first local file header allows it, unless
+         * they are already stored in a temporary file. Archives that do not start with a local
+         * file header, that use compression methods other than stored and deflated, or that
+         * store entries without sizes in their local header, are copied to a temporary file and
+         * read from the central directory instead. Deflated entries without sizes can be
+         * streamed because deflate data marks its own end.
+         */
+        val zipStreamIteratorFactory: ArchiveIteratorFactory = factory@{ input, tempDir ->
+            if (input is TempFileInputStream) {
+                // already stored in a file, which can be read without copying
+                return@factory ZipInputStreamIterator(input, tempDir)
+            }
+            val bufferedInput = BufferedInputStream(input)
+            if (canStream(bufferedInput)) {
+                ZipStreamIterator(bufferedInput)
+            } else {
+                ZipInputStreamIterator(bufferedInput, tempDir)
+            }
+        }
+
+        /** Whether the first local file header of [input] allows streaming, without consuming it. */
+        private fun canStream(input: BufferedInputStream): Boolean {
+            input.mark(LOCAL_HEADER_SIZE)
+            val header = try {
+                input.readNBytes(LOCAL_HEADER_SIZE)
+            } finally {
+                input.reset()
+            }
+            if (header.size < LOCAL_HEADER_SIZE) {
+                return false
+            }
+            val buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN)
+            if (buffer.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                return false
+            }
+            val flags = buffer.getShort(6).toInt()
+            return when (buffer.getShort(8).toInt()) {
+                METHOD_DEFLATED -> true
+                METHOD_STORED -> flags and DATA_DESCRIPTOR_FLAG == 0
+                else -> false
+            }
+        }
+    }
+}
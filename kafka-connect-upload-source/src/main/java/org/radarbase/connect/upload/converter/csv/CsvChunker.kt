@@ -0,0 +1,135 @@
+package org.radarbase.connect.upload.converter.csv
+
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Splits a CSV file into chunks of whole lines that can be converted independently.
+ */
+object CsvChunker {
+    private const val BUFFER_SIZE = 64 * 1024
+
+    /**
+     * Range of bytes from [start] until [end] in a CSV file, starting with line
+     * [firstLineNumber]. Line numbers count the header as line 1.
+     */
+    data class Chunk(
+        val start: Long,
+        val end: Long,
+        val firstLineNumber: Int,
+    ) {
+        /** Open the bytes of this chunk in [path]. */
+        fun open(path: Path): InputStream {
+            val channel = FileChannel.open(path)
+            return try {
+                channel.position(start)
+                LimitedInputStream(Channels.newInputStream(channel), end - start)
+            } catch (ex: Exception) {
+                channel.close()
+                throw ex
+            }
+        }
+    }
+
+    /**
+     * Split the lines after the header of the CSV file at [path] into chunks of at least
+     * [chunkSize] bytes, except for the last chunk. Lines end with LF, CRLF or CR, the same as
+     * in [CsvTokenizer] and OpenCSV.
+     * @return chunks in file order, or null if the file contains quotes, because then a line
+     *         break may not end a line.
+     */
+    fun split(path: Path, chunkSize: Long): List<Chunk>? {
+        require(chunkSize > 0) { "Chunk size must be positive" }
+        val chunks = mutableListOf<Chunk>()
+        // start of the current chunk, or -1 while reading the header
+        var chunkStart = -1L
+        var chunkLineNumber = 0
+        var lineNumber = 1
+        var isCarriageReturn = false
+        var position = 0L
+
+        fun startLine(lineStart: Long) {
+            lineNumber++
+            if (chunkStart == -1L) {
+                chunkStart = lineStart
+                chunkLineNumber = lineNumber
+            } else if (lineStart - chunkStart >= chunkSize) {
+                chunks += Chunk(chunkStart, lineStart, chunkLineNumber)
+                chunkStart = lineStart
+                chunkLineNumber = lineNumber
+            }
+        }
+
+        Files.newInputStream(path).use { input ->
+            val buffer = ByteArray(BUFFER_SIZE)
+            while (true) {
+                val numRead = input.read(buffer)
+                if (numRead == -1) {
+                    break
+                }
+                for (i in 0 until numRead) {
+                    val b = buffer[i]
+                    if (b == QUOTE) {
+                        return null
+                    }
+                    if (isCarriageReturn && b != LF) {
+                        // a CR without LF ended the previous line
+                        startLine(position + i)
+                    }
+                    if (b == LF) {
+                        startLine(position + i + 1)
+                    }
+                    isCarriageReturn = b == CR
+                }
+                position += numRead
+            }
+        }
+        if (isCarriageReturn) {
+            startLine(position)
+        }
+        if (chunkStart in 0 until position) {
+            chunks += Chunk(chunkStart, position, chunkLineNumber)
+        }
+        return chunks
+    }
+
+    private const val QUOTE = '"'.code.toByte()
+    private const val LF = '\n'.code.toByte()
+    private const val CR = '\r'.code.toByte()
+
+    private class LimitedInputStream(input: InputStream, private var remaining: Long) : FilterInputStream(input) {
+        override fun read(): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            val result = super.read()
+            if (result != -1) {
+                remaining--
+            }
+            return result
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            val result = super.read(b, off, minOf(len.toLong(), remaining).toInt())
+            if (result > 0) {
+                remaining -= result
+            }
+            return result
+        }
+
+        override fun skip(n: Long): Long {
+            val result = super.skip(minOf(n, remaining))
+            remaining -= result
+            return result
+        }
+
+        override fun available(): Int = minOf(super.available().toLong(), remaining).toInt()
+    }
+}
@@ -0,0 +1,117 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.radarbase.connect.upload.logging.RecordLogger
+import java.util.EnumMap
+import java.util.TreeSet
+
+/**
+ * Counts the CSV lines of a single file that were skipped, by reason, and keeps the lowest
+ * [maxSampleLines] line numbers of each reason. This replaces a log message per skipped line
+ * with a single summary per file, so that corrupt files do not fill the record logs.
+ *
+ * When multiple line processors check the same line in turn, the line is counted once, so lines
+ * must be checked in order. Chunks of a file that are converted in parallel each use their own
+ * diagnostics, which are then combined with [addAll].
+ */
+class CsvLineDiagnostics(
+    private val maxSampleLines: Int = DEFAULT_MAX_SAMPLE_LINES,
+) {
+    private val reasons = EnumMap<SkipReason, ReasonCount>(SkipReason::class.java)
+
+    /** Number of distinct skipped lines, for any reason. */
+    private var lineCount = 0L
+    private var lastLine = -1
+
+    /** Whether no lines have been skipped. */
+    val isEmpty: Boolean
+        @Synchronized get() = reasons.isEmpty()
+
+    /** Number of skipped lines with given [reason]. */
+    @Synchronized
+    fun count(reason: SkipReason): Long = reasons[reason]?.count ?: 0L
+
+    /** Number of skipped lines, counting lines that were skipped for multiple reasons once. */
+    val totalCount: Long
+        @Synchronized get() = lineCount
+
+    /** Lowest line numbers that were skipped with given [reason]. */
+    @Synchronized
+    fun sampleLines(reason: SkipReason): List<Int> = reasons[reason]?.lines?.toList() ?: emptyList()
+
+    /** Record that line [lineNumber] was skipped because of [reason]. */
+    @Synchronized
+    fun skip(reason: SkipReason, lineNumber: Int) {
+        if (lastLine != lineNumber) {
+            lastLine = lineNumber
+            lineCount++
+        }
+        val reasonCount = reasons.getOrPut(reason) { ReasonCount() }
+        if (reasonCount.lastLine == lineNumber) {
+            return
+        }
+        reasonCount.lastLine = lineNumber
+        reasonCount.count++
+        reasonCount.lines += lineNumber
+        if (reasonCount.lines.size > maxSampleLines) {
+            reasonCount.lines.pollLast()
+        }
+    }
+
+    /** Add the skipped lines of [other], which must not overlap with the lines in this. */
+    @Synchronized
+    fun addAll(other: CsvLineDiagnostics) {
+        synchronized(other) {
+            lineCount += other.lineCount
+            lastLine = maxOf(lastLine, other.lastLine)
+            other.reasons.forEach { (reason, otherCount) ->
+                val reasonCount = reasons.getOrPut(reason) { ReasonCount() }
+                reasonCount.count += otherCount.count
+                reasonCount.lastLine = maxOf(reasonCount.lastLine, otherCount.lastLine)
+                reasonCount.lines += otherCount.lines
+                while (reasonCount.lines.size > maxSampleLines) {
+                    reasonCount.lines.pollLast()
+                }
+            }
+        }
+    }
+
+    /** Summary of all skipped lines, or null if no lines were skipped. */
+    @Synchronized
+    fun summary(): String? {
+        if (reasons.isEmpty()) {
+            return null
+        }
+        return reasons.entries.joinToString(
+            separator = "; ",
+            prefix = "Skipped $lineCount lines: ",
+        ) { (reason, reasonCount) ->
+            val lines = reasonCount.lines.joinToString(
+                separator = ", ",
+                postfix = if (reasonCount.count > reasonCount.lines.size) ", ..." else "",
+            )
+            "${reasonCount.count} ${reason.description} (lines $lines)"
+        }
+    }
+
+    /** Log the summary of skipped lines of [fileName] as a single warning, if any were skipped. */
+    fun logSummary(logger: RecordLogger, fileName: String) {
+        val summary = summary() ?: return
+        logger.warn("[$fileName] $summary")
+    }
+
+    enum class SkipReason(val description: String) {
+        EMPTY_LINE("empty lines"),
+        SIZE_MISMATCH("lines with a different size than the header"),
+        EMPTY_VALUES("lines with empty values"),
+    }
+
+    private class ReasonCount {
+        var count: Long = 0L
+        var lastLine: Int = -1
+        val lines = TreeSet<Int>()
+    }
+
+    companion object {
+        const val DEFAULT_MAX_SAMPLE_LINES = 10
+    }
+}
@@ -19,6 +19,7 @@ package org.radarbase.connect.upload.converter.csv
 import org.radarbase.connect.upload.api.ContentsDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.TopicData
+import org.radarbase.connect.upload.converter.csv.CsvLineDiagnostics.SkipReason
 
 /**
  * Processor for processing single lines of CSV file.
@@ -54,6 +55,13 @@ interface CsvLineProcessorFactory {
      */
     fun matches(header: List<String>) = header.containsAll(this.header)
 
+    /**
+     * Whether large CSV files may be split into chunks that are converted in parallel. Only
+     * processors that convert each line independently of other lines may support this.
+     */
+    val supportsParallelChunks: Boolean
+        get() = false
+
     /**
      * Create a line processor for given record.
      */
@@ -70,30 +78,61 @@ interface CsvLineProcessorFactory {
             header: List<String>,
             line: Array<String>,
             lineNumber: Int,
-        ): Boolean {
-            return when {
-                line.isEmpty() -> {
-                    context.logger.warn("[${context.fileName}:$lineNumber] Found empty line")
+        ): Boolean = context.checkLine(header, line.size, lineNumber) { line.any { it.isEmpty() } }
+
+        /**
+         * Whether the current line of [row] is valid. By default, this calls [isLineValid]
+         * with the values of the row.
+         */
+        fun isRowValid(
+            header: List<String>,
+            row: CsvRow,
+        ): Boolean = isLineValid(header, row.values, row.lineNumber)
+
+        /**
+         * Convert a line from csv to one or more records
+         */
+        fun convertToRecord(
+            lineValues: Map<String, String>,
+            timeReceived: Double,
+        ): Sequence<TopicData>
+
+        /**
+         * Convert the current line of [row] to one or more records. The row is reused for the
+         * next line, so it should not be retained. By default, this converts the row to a map
+         * and calls [convertToRecord].
+         */
+        fun convertRowToRecord(
+            row: CsvRow,
+            timeReceived: Double,
+        ): Sequence<TopicData> = convertToRecord(row.toMap(), timeReceived)
+
+        companion object {
+            /**
+             * Check that a line with [lineSize] values is not empty, matches the header size
+             * and has no empty values. Skipped lines are counted in [lineDiagnostics] instead
+             * of being logged one by one.
+             */
+            inline fun ConverterFactory.ContentsContext.checkLine(
+                header: List<String>,
+                lineSize: Int,
+                lineNumber: Int,
+                hasEmptyValue: () -> Boolean,
+            ): Boolean = when {
+                lineSize == 0 -> {
+                    lineDiagnostics.skip(SkipReason.EMPTY_LINE, lineNumber)
                     false
                 }
-                header.size != line.size -> {
-                    context.logger.warn("[${context.fileName}:$lineNumber] Line size ${line.size} does not match with header size ${header.size}. Skipping this line")
+                header.size != lineSize -> {
+                    lineDiagnostics.skip(SkipReason.SIZE_MISMATCH, lineNumber)
                     false
                 }
-                line.any { it.isEmpty() } -> {
-                    context.logger.warn("[${context.fileName}:$lineNumber] Line with empty values found. Skipping this line")
+                hasEmptyValue() -> {
+                    lineDiagnostics.skip(SkipReason.EMPTY_VALUES, lineNumber)
                     false
                 }
                 else -> true
             }
         }
-
-        /**
-         * Convert a line from csv to one or more records
-         */
-        fun convertToRecord(
-            lineValues: Map<String, String>,
-            timeReceived: Double,
-        ): Sequence<TopicData>
     }
 }
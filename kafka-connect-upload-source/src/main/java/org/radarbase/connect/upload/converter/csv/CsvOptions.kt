@@ -0,0 +1,23 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_CSV_PARALLEL_CHUNK_BYTES_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_CSV_TOKENIZER_CONFIG
+
+/** Settings for reading CSV files. */
+data class CsvOptions(
+    /** Whether CSV files are read with the streaming [CsvTokenizer] instead of OpenCSV. */
+    val useTokenizer: Boolean = false,
+    /**
+     * Size of the chunks in which large CSV files are converted in parallel, if all their line
+     * processors support it. Set to 0 to always convert CSV files sequentially.
+     */
+    val parallelChunkBytes: Long = 0L,
+) {
+    companion object {
+        /** Read CSV options from connector settings. */
+        fun fromSettings(settings: Map<String, String>) = CsvOptions(
+            useTokenizer = settings[SOURCE_CSV_TOKENIZER_CONFIG]?.toBoolean() ?: false,
+            parallelChunkBytes = settings[SOURCE_CSV_PARALLEL_CHUNK_BYTES_CONFIG]?.toLongOrNull() ?: 0L,
+        )
+    }
+}
@@ -10,9 +10,18 @@ import org.radarbase.connect.upload.converter.FileProcessor
 import org.radarbase.connect.upload.converter.TopicData
 import org.radarbase.connect.upload.exception.ConversionFailedException
 import org.radarbase.connect.upload.exception.InvalidFormatException
+import org.radarbase.connect.upload.io.TempFile.Companion.copyToTempFile
+import org.radarbase.connect.upload.io.TempFile.TempFileInputStream
+import org.radarbase.connect.upload.io.TempSpace
 import java.io.BufferedReader
+import java.io.Closeable
 import java.io.IOException
 import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
 
 /**
  * Base class to process CSV files with multiple possible per-CSV-line processors.
@@ -35,9 +44,32 @@ open class CsvProcessor(
             return
         }
 
-        inputStream.bufferedReader().toCsvReader().use { reader ->
-            processCsv(reader, contentProcessorsFactories, context)
-                .forEach(produce)
+        val chunkBytes = context.csvOptions.parallelChunkBytes
+        val size = context.contents.size ?: -1L
+        val pool = context.csvChunkPool
+        try {
+            if (
+                pool != null &&
+                chunkBytes > 0L &&
+                size >= 2 * chunkBytes &&
+                contentProcessorsFactories.isNotEmpty() &&
+                contentProcessorsFactories.all { it.supportsParallelChunks } &&
+                // a file that does not fit in the temporary space is converted sequentially
+                (inputStream is TempFileInputStream || !TempSpace.exceedsQuota(size))
+            ) {
+                if (inputStream is TempFileInputStream) {
+                    inputStream.use { processFile(it.path, pool, contentProcessorsFactories, context, produce) }
+                } else {
+                    Files.createDirectories(chunkDir)
+                    inputStream.copyToTempFile(chunkDir, "record-${context.id}-").use { tempFile ->
+                        processFile(tempFile.tempFile, pool, contentProcessorsFactories, context, produce)
+                    }
+                }
+            } else {
+                processStream(inputStream, contentProcessorsFactories, context, produce)
+            }
+        } finally {
+            context.lineDiagnostics.logSummary(context.logger, context.fileName)
         }
     }
 
@@ -56,38 +88,128 @@ open class CsvProcessor(
         }
     }
 
-    private fun processCsv(
-        reader: CSVReader,
+    /** Convert all lines of a CSV file in order. */
+    private fun processStream(
+        inputStream: InputStream,
         contentProcessorsFactories: List<CsvLineProcessorFactory>,
         context: ConverterFactory.ContentsContext,
-    ): Sequence<TopicData> {
-        val rawHeader = reader.readNext()
-        if (rawHeader == null) {
-            checkCsvEmpty(contentProcessorsFactories, context)
-            return emptySequence()
+        produce: (TopicData) -> Unit,
+    ) {
+        openLineReader(inputStream, context).use { reader ->
+            val header = reader.readHeader(contentProcessorsFactories, context) ?: return
+            val processors = contentProcessorsFactories.matchHeader(context, header)
+                .map { it.createLineProcessor(context) }
+
+            convertLines(reader, header, processors, context, firstLineNumber = 2)
+                .forEach(produce)
+        }
+    }
+
+    /**
+     * Convert a CSV file at [path] in chunks of lines on [pool], producing the results in the
+     * original order. Only a few chunks are converted ahead of the chunk that is being produced,
+     * to limit memory use. Files that cannot be split are converted in order.
+     */
+    private fun processFile(
+        path: Path,
+        pool: ForkJoinPool,
+        contentProcessorsFactories: List<CsvLineProcessorFactory>,
+        context: ConverterFactory.ContentsContext,
+        produce: (TopicData) -> Unit,
+    ) {
+        val chunks = CsvChunker.split(path, context.csvOptions.parallelChunkBytes)
+        if (chunks == null || chunks.size < 2) {
+            processStream(Files.newInputStream(path), contentProcessorsFactories, context, produce)
+            return
         }
-        val header = rawHeader.map { it.trim().uppercase() }
+        val header = openLineReader(Files.newInputStream(path), context).use { reader ->
+            reader.readHeader(contentProcessorsFactories, context)
+        } ?: return
+        val headerFactories = contentProcessorsFactories.matchHeader(context, header)
+        context.logger.debug("Converting ${context.fileName} in ${chunks.size} parallel chunks")
 
-        val processors = contentProcessorsFactories.createLineProcessors(context, header)
+        val remainingChunks = chunks.iterator()
+        val pending = ArrayDeque<ForkJoinTask<ConvertedChunk>>()
+        fun submitNext() {
+            if (remainingChunks.hasNext()) {
+                val chunk = remainingChunks.next()
+                pending.addLast(pool.submit(Callable { convertChunk(path, chunk, header, headerFactories, context) }))
+            }
+        }
 
-        return generateSequence { reader.readNext() }
-            .flatMapIndexed { idx: Int, line: Array<String> ->
-                val lineMap = mutableMapOf<String, String>().apply {
-                    header.forEachIndexed { headingIdx, heading ->
-                        if (headingIdx < line.size) {
-                            this[heading] = line[headingIdx]
-                        }
-                    }
-                }
-                val lineNumber = idx + 2
+        try {
+            repeat(pool.parallelism + 1) { submitNext() }
+            while (pending.isNotEmpty()) {
+                val convertedChunk = pending.removeFirst().join()
+                submitNext()
+                context.lineDiagnostics.addAll(convertedChunk.lineDiagnostics)
+                convertedChunk.records.forEach(produce)
+            }
+        } finally {
+            // the file may be removed after returning, so wait for running chunks
+            pending.forEach { it.cancel(true) }
+            pending.forEach { it.quietlyJoin() }
+        }
+    }
+
+    /**
+     * Convert a [chunk] of the file at [path]. Skipped lines are counted in a copy of [context]
+     * with its own line diagnostics, because chunks are checked concurrently.
+     */
+    private fun convertChunk(
+        path: Path,
+        chunk: CsvChunker.Chunk,
+        header: List<String>,
+        factories: List<CsvLineProcessorFactory>,
+        context: ConverterFactory.ContentsContext,
+    ): ConvertedChunk {
+        val chunkContext = context.copy()
+        val processors = factories.map { it.createLineProcessor(chunkContext) }
+        val records = openLineReader(chunk.open(path), chunkContext).use { reader ->
+            convertLines(reader, header, processors, chunkContext, chunk.firstLineNumber).toList()
+        }
+        return ConvertedChunk(records, chunkContext.lineDiagnostics)
+    }
 
+    /**
+     * Convert the remaining lines of [reader], of which the first has number
+     * [firstLineNumber]. Each line is loaded into a reused [CsvRow] before it is converted.
+     */
+    private fun convertLines(
+        reader: CsvLineReader,
+        header: List<String>,
+        processors: List<CsvLineProcessorFactory.CsvLineProcessor>,
+        context: ConverterFactory.ContentsContext,
+        firstLineNumber: Int,
+    ): Sequence<TopicData> {
+        val row = CsvRow(header)
+        var lineNumber = firstLineNumber
+
+        return generateSequence { row.takeIf { reader.readLine(it, lineNumber++) } }
+            .flatMap {
                 processors
                     .asSequence()
-                    .filter { it.isLineValid(header, line, lineNumber) }
-                    .flatMap { it.convertToRecord(lineMap, context.timeReceived) }
+                    .filter { it.isRowValid(header, row) }
+                    .flatMap { it.convertRowToRecord(row, context.timeReceived) }
             }
     }
 
+    /**
+     * Read the upper case header of a CSV file.
+     * @return the header or null if the file is empty and that is allowed.
+     */
+    private fun CsvLineReader.readHeader(
+        contentProcessorsFactories: List<CsvLineProcessorFactory>,
+        context: ConverterFactory.ContentsContext,
+    ): List<String>? {
+        val rawHeader = readRawHeader()
+        if (rawHeader == null) {
+            checkCsvEmpty(contentProcessorsFactories, context)
+            return null
+        }
+        return rawHeader.map { it.trim().uppercase() }
+    }
+
     protected open fun CsvLineProcessorFactory.checkHeader(
         contents: ContentsDTO,
         header: List<String>,
@@ -107,18 +229,70 @@ open class CsvProcessor(
         .withCSVParser(CSVParserBuilder().withSeparator(',').build())
         .build()
 
-    private fun List<CsvLineProcessorFactory>.createLineProcessors(
+    private fun openLineReader(
+        inputStream: InputStream,
+        context: ConverterFactory.ContentsContext,
+    ): CsvLineReader = if (context.csvOptions.useTokenizer) {
+        TokenizerLineReader(CsvTokenizer(inputStream.reader()))
+    } else {
+        OpenCsvLineReader(inputStream.bufferedReader().toCsvReader())
+    }
+
+    private fun List<CsvLineProcessorFactory>.matchHeader(
         context: ConverterFactory.ContentsContext,
         header: List<String>,
-    ): List<CsvLineProcessorFactory.CsvLineProcessor> {
-        val processors = this
-            .filter { it.checkHeader(context.contents, header) }
-            .map { it.createLineProcessor(context) }
+    ): List<CsvLineProcessorFactory> {
+        val factories = filter { it.checkHeader(context.contents, header) }
 
-        if (processors.isEmpty()) {
+        if (factories.isEmpty()) {
             throw InvalidFormatException("For file ${context.fileName} in record ${context.id}, cannot find CSV processor that matches header $header")
         }
 
-        return processors
+        return factories
+    }
+
+    /** Reader of CSV lines into a [CsvRow]. */
+    private interface CsvLineReader : Closeable {
+        /** Read the first line, or return null if the file is empty. */
+        fun readRawHeader(): Array<String>?
+
+        /** Load the next line into [row], or return false if there are no more lines. */
+        fun readLine(row: CsvRow, lineNumber: Int): Boolean
+    }
+
+    private class OpenCsvLineReader(private val reader: CSVReader) : CsvLineReader {
+        override fun readRawHeader(): Array<String>? = reader.readNext()
+
+        override fun readLine(row: CsvRow, lineNumber: Int): Boolean {
+            val line = reader.readNext() ?: return false
+            row.update(line, lineNumber)
+            return true
+        }
+
+        override fun close() = reader.close()
+    }
+
+    private class TokenizerLineReader(private val tokenizer: CsvTokenizer) : CsvLineReader {
+        override fun readRawHeader(): Array<String>? = if (tokenizer.next()) tokenizer.toArray() else null
+
+        override fun readLine(row: CsvRow, lineNumber: Int): Boolean {
+            if (!tokenizer.next()) {
+                return false
+            }
+            row.update(tokenizer, lineNumber)
+            return true
+        }
+
+        override fun close() = tokenizer.close()
+    }
+
+    /** Records of a converted chunk and its skipped lines. */
+    private class ConvertedChunk(
+        val records: List<TopicData>,
+        val lineDiagnostics: CsvLineDiagnostics,
+    )
+
+    companion object {
+        private val chunkDir: Path = TempSpace.directory("csv-chunks")
     }
 }
@@ -0,0 +1,106 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.radarbase.connect.upload.converter.FastNumberParser
+
+/**
+ * Reusable view of the current line of a CSV file with given upper case [header]. Column
+ * indices are resolved once from the header, after which values can be read by index without
+ * creating a map for each line. The values of a row change when the next line is read, so a
+ * row should not be retained outside of the line conversion.
+ */
+class CsvRow(val header: List<String>) {
+    private val columnIndices: Map<String, Int> = HashMap<String, Int>(header.size * 2).apply {
+        header.forEachIndexed { index, column -> this[column] = index }
+    }
+
+    private var lineValues: Array<String>? = emptyArray()
+    private var tokenizer: CsvTokenizer? = null
+
+    /**
+     * Raw values of the current line. If the line was read with a [CsvTokenizer], this creates
+     * strings of all values.
+     */
+    val values: Array<String>
+        get() = lineValues ?: checkNotNull(tokenizer).toArray().also { lineValues = it }
+
+    /** Number of values in the current line. */
+    val size: Int
+        get() = lineValues?.size ?: checkNotNull(tokenizer).size
+
+    /** Line number of the current line in the CSV file, starting at 1 for the header. */
+    var lineNumber: Int = 0
+        private set
+
+    private var lineMap: Map<String, String>? = null
+
+    /** Update this row to the next line. */
+    fun update(values: Array<String>, lineNumber: Int) {
+        this.lineValues = values
+        this.tokenizer = null
+        this.lineNumber = lineNumber
+        lineMap = null
+    }
+
+    /** Update this row to the current line of [tokenizer], without copying its values. */
+    fun update(tokenizer: CsvTokenizer, lineNumber: Int) {
+        this.lineValues = null
+        this.tokenizer = tokenizer
+        this.lineNumber = lineNumber
+        lineMap = null
+    }
+
+    /**
+     * Index of [column] in the header.
+     * @throws NoSuchElementException if the header does not contain the column.
+     */
+    fun columnIndex(column: String): Int = columnIndices[column]
+        ?: throw NoSuchElementException("Column $column is not present in CSV header $header")
+
+    /**
+     * Indices of all given [columns] in the header, in the same order. Columns that are not
+     * present in the header get index -1.
+     */
+    fun columnIndices(columns: List<String>): IntArray = IntArray(columns.size) { columnIndices[columns[it]] ?: -1 }
+
+    /** Value of [column], without creating a string if the line was read by a [CsvTokenizer]. */
+    fun field(column: Int): CharSequence = lineValues?.get(column) ?: checkNotNull(tokenizer).field(column)
+
+    operator fun get(column: Int): String = field(column).toString()
+
+    operator fun get(column: String): String = get(columnIndex(column))
+
+    fun getDouble(column: Int): Double = FastNumberParser.parseDouble(field(column))
+
+    fun getFloat(column: Int): Float = FastNumberParser.parseFloat(field(column))
+
+    fun getLong(column: Int): Long = FastNumberParser.parseLong(field(column))
+
+    fun getInt(column: Int): Int = FastNumberParser.parseInt(field(column))
+
+    fun getBoolean(column: Int): Boolean = FastNumberParser.parseBoolean(field(column))
+
+    /** Whether any value in the current line is empty. */
+    fun hasEmptyValue(): Boolean {
+        for (i in 0 until size) {
+            if (field(i).isEmpty()) {
+                return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * Current line as a map from header to value, for line processors that do not use the row
+     * view. The map is created at most once per line.
+     */
+    fun toMap(): Map<String, String> = lineMap
+        ?: HashMap<String, String>(header.size * 2).also { map ->
+            val numValues = size
+            header.forEachIndexed { index, column ->
+                if (index < numValues) {
+                    map[column] = get(index)
+                }
+            }
+            lineMap = map
+        }
+}
@@ -0,0 +1,202 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.radarbase.connect.upload.exception.InvalidFormatException
+import java.io.Closeable
+import java.io.Reader
+
+/**
+ * Streaming CSV tokenizer that reads lines from [reader] into a reusable character buffer.
+ * Fields are exposed as [CharSequence] views on that buffer, so reading a line does not
+ * create any strings. Field views are only valid until the next call to [next].
+ *
+ * Quoting follows RFC 4180: a field that starts with a quote may contain separators, line
+ * breaks and quotes escaped as two quotes. Like OpenCSV, whitespace before an opening quote is
+ * ignored, and an empty line is read as a line with a single empty field.
+ */
+class CsvTokenizer(
+    private val reader: Reader,
+    bufferSize: Int = DEFAULT_BUFFER_SIZE,
+    private val separator: Char = ',',
+) : Closeable {
+    private var buffer = CharArray(bufferSize)
+    private var position = 0
+    private var limit = 0
+    private var isEndOfInput = false
+
+    /** Start of the current line in the buffer. */
+    private var lineStart = 0
+
+    /** Position where the next character of the current field is written. */
+    private var writePosition = 0
+    private var fieldStarts = IntArray(INITIAL_FIELDS)
+    private var fieldEnds = IntArray(INITIAL_FIELDS)
+    private var fields = arrayOfNulls<Field>(INITIAL_FIELDS)
+
+    /** Number of fields in the current line. */
+    var size: Int = 0
+        private set
+
+    /** Number of lines read so far. */
+    var lineCount: Int = 0
+        private set
+
+    init {
+        require(bufferSize > 0) { "CSV buffer size must be positive" }
+    }
+
+    /**
+     * Read the next line.
+     * @return false if there are no more lines.
+     * @throws InvalidFormatException if the input ends inside a quoted field.
+     */
+    fun next(): Boolean {
+        size = 0
+        lineStart = position
+        if (!hasChar()) {
+            return false
+        }
+        lineCount++
+        while (readField()) {
+            // read fields until the end of the line
+        }
+        return true
+    }
+
+    /** Value of field [index] of the current line, valid until the next call to [next]. */
+    fun field(index: Int): CharSequence {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("Field $index does not exist in CSV line of $size fields")
+        }
+        return fields[index] ?: Field(index).also { fields[index] = it }
+    }
+
+    /** All fields of the current line as strings. */
+    fun toArray(): Array<String> = Array(size) { String(buffer, fieldStarts[it], fieldEnds[it] - fieldStarts[it]) }
+
+    /**
+     * Read a single field, writing its unescaped value in place in the buffer.
+     * @return whether more fields follow on the current line.
+     */
+    private fun readField(): Boolean {
+        val fieldIndex = size
+        if (fieldIndex == fieldStarts.size) {
+            growFields()
+        }
+        // fieldStarts is kept up to date while the buffer is compacted
+        fieldStarts[fieldIndex] = position
+        writePosition = position
+        size++
+
+        var isQuoted = false
+        var hasQuotes = false
+        while (true) {
+            if (!hasChar()) {
+                if (isQuoted) {
+                    throw InvalidFormatException("Unterminated quoted field in CSV line $lineCount")
+                }
+                fieldEnds[fieldIndex] = writePosition
+                return false
+            }
+            val c = buffer[position++]
+            if (isQuoted) {
+                if (c != QUOTE) {
+                    buffer[writePosition++] = c
+                } else if (hasChar() && buffer[position] == QUOTE) {
+                    buffer[writePosition++] = QUOTE
+                    position++
+                } else {
+                    isQuoted = false
+                }
+            } else if (c == separator) {
+                fieldEnds[fieldIndex] = writePosition
+                return true
+            } else if (c == '\n' || c == '\r') {
+                fieldEnds[fieldIndex] = writePosition
+                if (c == '\r' && hasChar() && buffer[position] == '\n') {
+                    position++
+                }
+                return false
+            } else if (c == QUOTE && !hasQuotes && isBlank(fieldStarts[fieldIndex], writePosition)) {
+                isQuoted = true
+                hasQuotes = true
+                writePosition = fieldStarts[fieldIndex]
+            } else {
+                buffer[writePosition++] = c
+            }
+        }
+    }
+
+    private fun isBlank(start: Int, end: Int): Boolean {
+        for (i in start until end) {
+            if (!buffer[i].isWhitespace()) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /** Whether a character is available at [position], reading more input if needed. */
+    private fun hasChar(): Boolean = position < limit || fill()
+
+    /**
+     * Read more input into the buffer. The current line is first moved to the start of the
+     * buffer, and the buffer grows if the line does not leave any space.
+     */
+    private fun fill(): Boolean {
+        if (isEndOfInput) {
+            return false
+        }
+        if (lineStart > 0) {
+            val shift = lineStart
+            buffer.copyInto(buffer, destinationOffset = 0, startIndex = shift, endIndex = limit)
+            limit -= shift
+            position -= shift
+            writePosition -= shift
+            lineStart = 0
+            for (i in 0 until size) {
+                fieldStarts[i] -= shift
+                fieldEnds[i] -= shift
+            }
+        }
+        if (limit == buffer.size) {
+            buffer = buffer.copyOf(buffer.size * 2)
+        }
+        val numRead = reader.read(buffer, limit, buffer.size - limit)
+        if (numRead <= 0) {
+            isEndOfInput = true
+            return false
+        }
+        limit += numRead
+        return true
+    }
+
+    private fun growFields() {
+        val newSize = fieldStarts.size * 2
+        fieldStarts = fieldStarts.copyOf(newSize)
+        fieldEnds = fieldEnds.copyOf(newSize)
+        fields = fields.copyOf(newSize)
+    }
+
+    override fun close() {
+        reader.close()
+    }
+
+    /** View on field [index] of the current line. */
+    private inner class Field(private val index: Int) : CharSequence {
+        override val length: Int
+            get() = fieldEnds[index] - fieldStarts[index]
+
+        override fun get(index: Int): Char = buffer[fieldStarts[this.index] + index]
+
+        override fun subSequence(startIndex: Int, endIndex: Int): CharSequence =
+            String(buffer, fieldStarts[index] + startIndex, endIndex - startIndex)
+
+        override fun toString(): String = String(buffer, fieldStarts[index], length)
+    }
+
+    companion object {
+        private const val QUOTE = '"'
+        private const val INITIAL_FIELDS = 16
+        const val DEFAULT_BUFFER_SIZE = 64 * 1024
+    }
+}
@@ -5,6 +5,7 @@ import org.radarbase.connect.upload.api.RecordDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.FileProcessor
 import org.radarbase.connect.upload.converter.FileProcessorFactory
+import org.radarbase.connect.upload.converter.FixedLayoutTimeParser
 import org.radarbase.connect.upload.converter.TimeFieldParser
 import org.radarbase.connect.upload.converter.TopicData
 import org.radarcns.connector.upload.oxford.OxfordCameraAxes
@@ -95,15 +96,20 @@ class CameraDataFileProcessor : FileProcessorFactory {
     }
 
     companion object {
-        private val TIME_PARSER = TimeFieldParser.DateFormatParser(
-            DateTimeFormatterBuilder()
-                // date/time
-                .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-                // offset (hhmm - "+0000" when it's zero)
-                .appendOffset("+HHMM", "+0000")
-                // create formatter
-                .toFormatter(),
+        private val TIME_PARSER = FixedLayoutTimeParser(
+            // most common layout, other ISO local date-times are handled by the fallback
+            "yyyy-MM-dd'T'HH:mm:ssZ",
             "dt",
+            fallback = TimeFieldParser.DateFormatParser(
+                DateTimeFormatterBuilder()
+                    // date/time
+                    .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                    // offset (hhmm - "+0000" when it's zero)
+                    .appendOffset("+HHMM", "+0000")
+                    // create formatter
+                    .toFormatter(),
+                "dt",
+            ),
         )
 
         private const val TOPIC = "connect_upload_oxford_camera_data"
@@ -5,7 +5,8 @@ import org.radarbase.connect.upload.api.SourceTypeDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.FileProcessorFactory
 import org.radarbase.connect.upload.converter.archive.ArchiveProcessorFactory
-import org.radarbase.connect.upload.converter.archive.ZipInputStreamIterator.Companion.zipIteratorFactory
+import org.radarbase.connect.upload.converter.archive.ZipChannelIterator.Companion.zipChannelIteratorFactory
+import org.radarbase.connect.upload.converter.archive.ZipStreamIterator.Companion.zipStreamIteratorFactory
 import org.radarbase.connect.upload.io.FileUploaderFactory
 import org.radarbase.connect.upload.logging.LogRepository
 import org.slf4j.LoggerFactory
@@ -20,13 +21,14 @@ class WearableCameraConverterFactory : ConverterFactory {
         connectorConfig: SourceTypeDTO,
         logRepository: LogRepository,
     ): List<FileProcessorFactory> {
-        val uploader = FileUploaderFactory(settings).fileUploader()
-
-        logger.info(
-            "Target endpoint is {} and Root folder for upload is {}",
-            uploader.advertisedTargetUri,
-            uploader.rootDirectory,
-        )
+        val uploaderFactory = FileUploaderFactory(settings)
+        uploaderFactory.fileUploader().use { uploader ->
+            logger.info(
+                "Target endpoint is {} and Root folder for upload is {}",
+                uploader.advertisedTargetUri,
+                uploader.rootDirectory,
+            )
+        }
         val processors = listOf(
             CameraDataFileProcessor(),
             CameraUploadProcessor { localThreadUploader.get() },
@@ -36,11 +38,15 @@ class WearableCameraConverterFactory : ConverterFactory {
                 sourceType,
                 entryProcessors = processors,
                 extension = ".zip",
-                archiveIteratorFactory = zipIteratorFactory,
+                archiveIteratorFactory = zipStreamIteratorFactory,
+                channelIteratorFactory = zipChannelIteratorFactory,
+                // the uploader is bound to the thread that processes the record
+                allowConcurrentEntries = false,
             ) {
                 override fun beforeProcessing(contents: ConverterFactory.ContentsContext) {
+                    // Records may be converted concurrently, so each one gets its own uploader.
                     localThreadUploader.set(
-                        uploader.apply {
+                        uploaderFactory.fileUploader().apply {
                             recordLogger = contents.logger
                         },
                     )
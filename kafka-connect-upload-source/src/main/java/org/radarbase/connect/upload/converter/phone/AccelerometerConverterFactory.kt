@@ -16,15 +16,21 @@
 
 package org.radarbase.connect.upload.converter.phone
 
+import org.apache.avro.Schema
 import org.radarbase.connect.upload.api.SourceTypeDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.FileProcessorFactory
 import org.radarbase.connect.upload.converter.csv.CsvFileProcessorFactory
 import org.radarbase.connect.upload.logging.LogRepository
+import org.radarcns.passive.phone.PhoneAcceleration
 
 class AccelerometerConverterFactory : ConverterFactory {
     override val sourceType: String = "phone-acceleration"
 
+    override val topicSchemas: Map<String, Schema> = mapOf(
+        "android_phone_acceleration" to PhoneAcceleration.getClassSchema(),
+    )
+
     override fun fileProcessorFactories(settings: Map<String, String>, connectorConfig: SourceTypeDTO, logRepository: LogRepository): List<FileProcessorFactory> {
         return listOf(
             CsvFileProcessorFactory(
@@ -21,12 +21,14 @@ package org.radarbase.connect.upload.converter.phone
 
 import org.radarbase.connect.upload.converter.StatelessCsvLineProcessor
 import org.radarbase.connect.upload.converter.TopicData
+import org.radarbase.connect.upload.converter.csv.CsvRow
 import org.radarcns.passive.phone.PhoneAcceleration
 
 class AccelerometerCsvProcessor : StatelessCsvLineProcessor() {
     private val topic: String = "android_phone_acceleration"
 
     override val header: List<String> = listOf("TIMESTAMP", "X", "Y", "Z")
+    override val supportsParallelChunks: Boolean = true
 
     override fun lineConversion(
         line: Map<String, String>,
@@ -36,9 +38,26 @@ class AccelerometerCsvProcessor : StatelessCsvLineProcessor() {
         PhoneAcceleration(
             time(line),
             timeReceived,
-            line.getValue("X").toFloat(),
-            line.getValue("Y").toFloat(),
-            line.getValue("Z").toFloat(),
+            line.floatValue("X"),
+            line.floatValue("Y"),
+            line.floatValue("Z"),
+        ),
+    )
+
+    override fun rowConversion(
+        row: CsvRow,
+        columns: IntArray,
+        timeReceived: Double,
+    ) = sequenceOf(
+        TopicData(
+            topic,
+            PhoneAcceleration(
+                timeFieldParser.timeFromChars(row.field(columns[0])),
+                timeReceived,
+                row.getFloat(columns[1]),
+                row.getFloat(columns[2]),
+                row.getFloat(columns[3]),
+            ),
         ),
     )
 }
@@ -16,16 +16,22 @@
 
 package org.radarbase.connect.upload.converter.phone
 
+import org.apache.avro.Schema
 import org.radarbase.connect.upload.api.SourceTypeDTO
 import org.radarbase.connect.upload.converter.ConverterFactory
 import org.radarbase.connect.upload.converter.FileProcessorFactory
 import org.radarbase.connect.upload.converter.archive.ArchiveProcessorFactory.Companion.zipFactory
 import org.radarbase.connect.upload.converter.csv.CsvFileProcessorFactory
 import org.radarbase.connect.upload.logging.LogRepository
+import org.radarcns.passive.phone.PhoneAcceleration
 
 class AccelerometerZipConverterFactory : ConverterFactory {
     override val sourceType: String = "acceleration-zip"
 
+    override val topicSchemas: Map<String, Schema> = mapOf(
+        "android_phone_acceleration" to PhoneAcceleration.getClassSchema(),
+    )
+
     override fun fileProcessorFactories(
         settings: Map<String, String>,
         connectorConfig: SourceTypeDTO,
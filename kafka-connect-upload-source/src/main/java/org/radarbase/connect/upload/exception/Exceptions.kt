@@ -31,4 +31,13 @@ open class ConversionTemporarilyFailedException(message: String, cause: Throwabl
 
 class NotAuthorizedException(message: String) : ConversionTemporarilyFailedException(message)
 
-class BadGatewayException(message: String, cause: Throwable? = null) : ConversionTemporarilyFailedException(message, cause)
+class BadGatewayException(
+    message: String,
+    cause: Throwable? = null,
+    /** HTTP status code of the failed request, if any. */
+    val statusCode: Int? = null,
+) : ConversionTemporarilyFailedException(message, cause)
+
+class TempSpaceExhaustedException(message: String) : ConversionTemporarilyFailedException(message)
+
+class TempFileTooLargeException(message: String) : ConversionFailedException(message)
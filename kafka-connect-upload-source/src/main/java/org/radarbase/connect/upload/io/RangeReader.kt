@@ -0,0 +1,13 @@
+package org.radarbase.connect.upload.io
+
+/**
+ * Reads byte ranges of a remote file, so that readers that need random access do not have
+ * to download all of it.
+ */
+fun interface RangeReader {
+    /**
+     * Read all bytes in [range] of the file.
+     * @throws java.io.IOException if the range cannot be read.
+     */
+    fun read(range: LongRange): ByteArray
+}
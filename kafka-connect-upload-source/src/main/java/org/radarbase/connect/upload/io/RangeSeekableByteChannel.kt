@@ -0,0 +1,97 @@
+package org.radarbase.connect.upload.io
+
+import java.nio.ByteBuffer
+import java.nio.channels.ClosedChannelException
+import java.nio.channels.NonWritableChannelException
+import java.nio.channels.SeekableByteChannel
+
+/**
+ * Read-only channel over a remote file of [size] bytes, that reads it with [rangeReader] in
+ * blocks of [blockSize] bytes. The most recently used [maxBlocks] blocks are kept in memory, so
+ * the many small reads of an archive reader result in few range requests.
+ */
+class RangeSeekableByteChannel(
+    private val size: Long,
+    private val blockSize: Int = DEFAULT_BLOCK_SIZE,
+    private val maxBlocks: Int = DEFAULT_MAX_BLOCKS,
+    private val rangeReader: RangeReader,
+) : SeekableByteChannel {
+    private val blocks = object : LinkedHashMap<Long, ByteArray>(maxBlocks, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Long, ByteArray>): Boolean = this.size > maxBlocks
+    }
+    private var position = 0L
+    private var closed = false
+
+    /** Number of range requests made. */
+    var requestCount = 0
+        private set
+
+    init {
+        require(size >= 0) { "Size must not be negative" }
+        require(blockSize > 0) { "Block size must be positive" }
+        require(maxBlocks > 0) { "Number of blocks must be positive" }
+    }
+
+    override fun read(dst: ByteBuffer): Int {
+        ensureOpen()
+        if (position >= size) {
+            return -1
+        }
+        var numRead = 0
+        while (dst.hasRemaining() && position < size) {
+            val blockIndex = position / blockSize
+            val block = block(blockIndex)
+            val offset = (position - blockIndex * blockSize).toInt()
+            val length = minOf(dst.remaining(), block.size - offset)
+            dst.put(block, offset, length)
+            position += length
+            numRead += length
+        }
+        return numRead
+    }
+
+    private fun block(index: Long): ByteArray = blocks.getOrPut(index) {
+        val start = index * blockSize
+        requestCount++
+        rangeReader.read(start until minOf(start + blockSize, size))
+    }
+
+    override fun position(): Long {
+        ensureOpen()
+        return position
+    }
+
+    override fun position(newPosition: Long): SeekableByteChannel {
+        ensureOpen()
+        require(newPosition >= 0) { "Position must not be negative" }
+        position = newPosition
+        return this
+    }
+
+    override fun size(): Long {
+        ensureOpen()
+        return size
+    }
+
+    override fun write(src: ByteBuffer): Int = throw NonWritableChannelException()
+
+    override fun truncate(size: Long): SeekableByteChannel = throw NonWritableChannelException()
+
+    override fun isOpen(): Boolean = !closed
+
+    override fun close() {
+        closed = true
+        blocks.clear()
+    }
+
+    private fun ensureOpen() {
+        if (closed) {
+            throw ClosedChannelException()
+        }
+    }
+
+    companion object {
+        const val DEFAULT_BLOCK_SIZE = 256 * 1024
+        const val DEFAULT_MAX_BLOCKS = 8
+    }
+}
@@ -0,0 +1,312 @@
+package org.radarbase.connect.upload.io
+
+import org.radarbase.connect.upload.api.ContentsDTO
+import org.radarbase.connect.upload.exception.ConversionTemporarilyFailedException
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Keeps downloaded record contents in temporary files in [cacheDir], so that a record that is
+ * converted again after a temporary failure does not need to be downloaded again. Files are
+ * identified by record ID, file name, size and creation date. The cache takes at most
+ * [maxBytes], removing the least recently used files to make room. Files also count against
+ * the [TempSpace] quota, so they are removed as well when other temporary files need the
+ * space. Its statistics are available as [RecordContentCacheMXBean].
+ */
+class RecordContentCache(
+    private val maxBytes: Long,
+    private val cacheDir: Path = TempSpace.directory("content-cache"),
+) : RecordContentCacheMXBean, Closeable {
+    /** Cached files in order of use. Files that are being read are removed until they are done. */
+    private val files = LinkedHashMap<Key, TempFile>(16, 0.75f, true)
+    private var numCachedBytes = 0L
+    private var isClosed = false
+    private val hits = LongAdder()
+    private val misses = LongAdder()
+    private val evictions = LongAdder()
+    private val reclaimer: (Long) -> Long = ::evict
+
+    init {
+        require(maxBytes > 0L) { "Content cache size must be positive" }
+        Files.createDirectories(cacheDir)
+        TempSpace.addReclaimer(reclaimer)
+    }
+
+    override val hitCount: Long
+        get() = hits.sum()
+
+    override val missCount: Long
+        get() = misses.sum()
+
+    override val evictionCount: Long
+        get() = evictions.sum()
+
+    override val size: Int
+        @Synchronized get() = files.size
+
+    override val cachedBytes: Long
+        @Synchronized get() = numCachedBytes
+
+    /** Whether [contents] of record [recordId] are cached. */
+    @Synchronized
+    fun contains(recordId: Long, contents: ContentsDTO): Boolean {
+        val key = Key.of(recordId, contents) ?: return false
+        return files.containsKey(key)
+    }
+
+    /**
+     * Read [contents] of record [recordId] with [handling]. If the file is not cached, it is
+     * opened with [download] and stored in the cache while it is read. If [handling] does not
+     * read the whole file, but returns normally or fails with a
+     * [ConversionTemporarilyFailedException], the rest is still downloaded, so that the file can
+     * be read from the cache when the record is converted again. On other failures, including
+     * interrupts, the download is abandoned.
+     */
+    fun read(
+        recordId: Long,
+        contents: ContentsDTO,
+        handling: (InputStream) -> Unit,
+        download: ((InputStream) -> Unit) -> Unit,
+    ) {
+        val key = Key.of(recordId, contents)
+        if (key == null || key.size > maxBytes) {
+            misses.increment()
+            download(handling)
+            return
+        }
+        val cachedFile = checkOut(key)
+        if (cachedFile != null) {
+            hits.increment()
+            try {
+                cachedFile.inputStream().use(handling)
+            } finally {
+                checkIn(key, cachedFile)
+            }
+            return
+        }
+        misses.increment()
+        download { input ->
+            val stream = CachingInputStream(input, TempFile(cacheDir, "record-$recordId-"), key.size)
+            // only a conversion that will be retried needs the rest of the file
+            val retryCause = try {
+                handling(stream)
+                null
+            } catch (ex: ConversionTemporarilyFailedException) {
+                ex
+            } catch (ex: Throwable) {
+                stream.discard()
+                throw ex
+            }
+            stream.finish()?.let { checkIn(key, it) }
+            retryCause?.let { throw it }
+        }
+    }
+
+    @Synchronized
+    private fun checkOut(key: Key): TempFile? = files.remove(key)
+        ?.also { numCachedBytes -= key.size }
+
+    /** Add [file] to the cache as most recently used, evicting the least recently used files. */
+    @Synchronized
+    private fun checkIn(key: Key, file: TempFile) {
+        if (isClosed || files.containsKey(key)) {
+            file.closeQuietly()
+            return
+        }
+        files[key] = file
+        numCachedBytes += key.size
+        // the added file itself fits, so it is never evicted
+        val iterator = files.entries.iterator()
+        while (numCachedBytes > maxBytes) {
+            iterator.evictNext()
+        }
+    }
+
+    /**
+     * Remove least recently used files until at least [bytes] are removed, to make room in
+     * the temporary space.
+     * @return the number of bytes removed.
+     */
+    @Synchronized
+    private fun evict(bytes: Long): Long {
+        var numEvicted = 0L
+        val iterator = files.entries.iterator()
+        while (numEvicted < bytes && iterator.hasNext()) {
+            numEvicted += iterator.evictNext()
+        }
+        return numEvicted
+    }
+
+    /** Remove the next file of [files] and return its size. */
+    private fun MutableIterator<Map.Entry<Key, TempFile>>.evictNext(): Long {
+        val (evictedKey, evictedFile) = next()
+        remove()
+        evictedFile.closeQuietly()
+        numCachedBytes -= evictedKey.size
+        evictions.increment()
+        return evictedKey.size
+    }
+
+    override fun close() {
+        TempSpace.removeReclaimer(reclaimer)
+        val closedFiles = synchronized(this) {
+            isClosed = true
+            numCachedBytes = 0L
+            files.values.toList().also { files.clear() }
+        }
+        closedFiles.forEach { it.closeQuietly() }
+    }
+
+    private data class Key(
+        val recordId: Long,
+        val fileName: String,
+        val size: Long,
+        val createdDate: Instant?,
+    ) {
+        companion object {
+            fun of(recordId: Long, contents: ContentsDTO): Key? {
+                val size = contents.size?.takeIf { it > 0L } ?: return null
+                return Key(recordId, contents.fileName, size, contents.createdDate)
+            }
+        }
+    }
+
+    /**
+     * Stream of a download of [expectedSize] bytes, that copies all bytes that are read to
+     * [file]. If writing to the file fails, for example because the temporary space is used up,
+     * the download continues without caching. The download is only closed by [finish].
+     */
+    private inner class CachingInputStream(
+        input: InputStream,
+        private val file: TempFile,
+        private val expectedSize: Long,
+    ) : FilterInputStream(input) {
+        private var output: OutputStream? = file.outputStream()
+        private var numBytes = 0L
+
+        override fun read(): Int {
+            val b = `in`.read()
+            if (b >= 0) {
+                cache { it.write(b) }
+                numBytes++
+            }
+            return b
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val numRead = `in`.read(b, off, len)
+            if (numRead > 0) {
+                cache { it.write(b, off, numRead) }
+                numBytes += numRead
+            }
+            return numRead
+        }
+
+        override fun skip(n: Long): Long {
+            // read skipped bytes so they are cached as well
+            val buffer = ByteArray(minOf(n, SKIP_BUFFER_SIZE).toInt().coerceAtLeast(1))
+            var numSkipped = 0L
+            while (numSkipped < n) {
+                val numRead = read(buffer, 0, minOf(n - numSkipped, buffer.size.toLong()).toInt())
+                if (numRead < 0) {
+                    break
+                }
+                numSkipped += numRead
+            }
+            return numSkipped
+        }
+
+        override fun markSupported(): Boolean = false
+
+        override fun close() = Unit
+
+        private inline fun cache(write: (OutputStream) -> Unit) {
+            val out = output ?: return
+            try {
+                write(out)
+            } catch (ex: Exception) {
+                logger.debug("Not caching {}: {}", file.tempFile, ex.toString())
+                abandon()
+            }
+        }
+
+        private fun abandon() {
+            try {
+                output?.close()
+            } catch (ex: IOException) {
+                // not used anymore
+            }
+            output = null
+        }
+
+        /**
+         * Read the rest of the download and close it. Downloading stops when the thread is
+         * interrupted.
+         * @return the cached file if the whole download was stored in it, or null otherwise.
+         */
+        fun finish(): TempFile? {
+            try {
+                val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+                // stop downloading as soon as caching fails
+                while (output != null && !Thread.currentThread().isInterrupted && read(buffer, 0, buffer.size) >= 0) {
+                    // cache the rest of the file
+                }
+            } catch (ex: IOException) {
+                logger.debug("Failed to download the rest of {}: {}", file.tempFile, ex.toString())
+                abandon()
+            } finally {
+                closeDownload()
+            }
+            val out = output
+            if (out != null && numBytes == expectedSize) {
+                try {
+                    out.close()
+                    return file
+                } catch (ex: Exception) {
+                    logger.debug("Not caching {}: {}", file.tempFile, ex.toString())
+                }
+            } else {
+                abandon()
+            }
+            file.closeQuietly()
+            return null
+        }
+
+        /** Close the download without reading the rest, and remove the cached file. */
+        fun discard() {
+            abandon()
+            closeDownload()
+            file.closeQuietly()
+        }
+
+        private fun closeDownload() {
+            try {
+                `in`.close()
+            } catch (ex: IOException) {
+                // download is done
+            }
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(RecordContentCache::class.java)
+
+        private const val SKIP_BUFFER_SIZE = 8192L
+
+        private fun TempFile.closeQuietly() {
+            try {
+                close()
+            } catch (ex: IOException) {
+                logger.warn("Failed to remove cached file {}", tempFile, ex)
+            }
+        }
+    }
+}
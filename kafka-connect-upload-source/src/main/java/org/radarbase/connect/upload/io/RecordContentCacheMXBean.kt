@@ -0,0 +1,19 @@
+package org.radarbase.connect.upload.io
+
+/** Statistics of a [RecordContentCache], exposed over JMX. */
+interface RecordContentCacheMXBean {
+    /** Number of files that were read from the cache. */
+    val hitCount: Long
+
+    /** Number of files that had to be downloaded. */
+    val missCount: Long
+
+    /** Number of files that were removed from the cache to make room for others. */
+    val evictionCount: Long
+
+    /** Number of files in the cache. */
+    val size: Int
+
+    /** Number of bytes in the cache. */
+    val cachedBytes: Long
+}
@@ -0,0 +1,188 @@
+package org.radarbase.connect.upload.io
+
+import org.radarbase.connect.upload.api.ContentsDTO
+import org.radarbase.connect.upload.api.RecordDTO
+import org.radarbase.connect.upload.api.UploadBackendClient
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.io.IOException
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Downloads the contents of records before they are converted, so that downloading a record
+ * overlaps with converting the previous one. Downloaded contents are stored in temporary files
+ * in [spoolDir] and take at most [byteBudget] bytes in total. Records that do not fit in the
+ * remaining budget are not prefetched, they are downloaded during conversion instead.
+ */
+class RecordContentSpool(
+    private val uploadClient: UploadBackendClient,
+    private val byteBudget: Long,
+    private val spoolDir: Path = TempSpace.directory("prefetch"),
+) : Closeable {
+    private val executor = Executors.newSingleThreadExecutor()
+    private val prefetches = ConcurrentHashMap<Long, Prefetch>()
+    private var reservedBytes: Long = 0L
+
+    init {
+        require(byteBudget > 0L) { "Prefetch byte budget must be positive" }
+        Files.createDirectories(spoolDir)
+    }
+
+    /**
+     * Start downloading the contents of [record] in the background, if they fit in the
+     * remaining byte budget.
+     */
+    fun prefetch(record: RecordDTO) {
+        val recordId = record.id ?: return
+        val contents = record.data?.contents?.takeIf { it.isNotEmpty() } ?: return
+        val size = contents.sumOf { it.size ?: return }
+
+        if (!reserve(size)) {
+            logger.debug("Not prefetching record {}: its {} bytes exceed the remaining budget", recordId, size)
+            return
+        }
+
+        val prefetch = Prefetch(record, contents, size)
+        if (prefetches.putIfAbsent(recordId, prefetch) != null) {
+            release(size)
+            return
+        }
+        try {
+            executor.execute(prefetch)
+        } catch (ex: RejectedExecutionException) {
+            prefetches.remove(recordId, prefetch)
+            release(size)
+        }
+    }
+
+    /**
+     * Take the prefetched contents of [record]. If the contents are still being downloaded,
+     * this waits for the download to finish.
+     * @return the downloaded contents, or null if the record was not prefetched, its download
+     *         had not started yet or its download failed.
+     */
+    fun take(record: RecordDTO): SpooledRecord? {
+        val prefetch = prefetches.remove(record.id ?: return null) ?: return null
+        return prefetch.take()
+    }
+
+    @Synchronized
+    private fun reserve(size: Long): Boolean {
+        if (reservedBytes + size > byteBudget) {
+            return false
+        }
+        reservedBytes += size
+        return true
+    }
+
+    @Synchronized
+    private fun release(size: Long) {
+        reservedBytes -= size
+    }
+
+    override fun close() {
+        executor.shutdownNow()
+        prefetches.values.forEach { it.discard() }
+        prefetches.clear()
+    }
+
+    private inner class Prefetch(
+        private val record: RecordDTO,
+        private val contents: Set<ContentsDTO>,
+        private val size: Long,
+    ) : Runnable {
+        /** Whether either the download or the converter has claimed this prefetch. */
+        private val claimed = AtomicBoolean(false)
+        private val result = CompletableFuture<SpooledRecord?>()
+
+        override fun run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return
+            }
+            val files = mutableMapOf<String, TempFile>()
+            try {
+                contents.forEach { content ->
+                    val tempFile = TempFile(spoolDir, "record-${record.id}-")
+                    files[content.fileName] = tempFile
+                    uploadClient.retrieveFile(record, content.fileName) { body ->
+                        tempFile.outputStream().use { body.byteStream().copyTo(it) }
+                    }
+                }
+                result.complete(SpooledRecord(files, size))
+            } catch (ex: Exception) {
+                logger.warn("Failed to prefetch contents of record {}: {}", record.id, ex.toString())
+                files.values.forEach { it.closeQuietly() }
+                release(size)
+                result.complete(null)
+            }
+        }
+
+        fun take(): SpooledRecord? {
+            if (claimed.compareAndSet(false, true)) {
+                // download has not started, so the converter can just as well download it itself
+                release(size)
+                return null
+            }
+            return try {
+                result.get()
+            } catch (ex: InterruptedException) {
+                discard()
+                Thread.currentThread().interrupt()
+                null
+            } catch (ex: ExecutionException) {
+                null
+            }
+        }
+
+        fun discard() {
+            if (claimed.compareAndSet(false, true)) {
+                release(size)
+            } else {
+                result.thenAccept { it?.close() }
+            }
+        }
+    }
+
+    /**
+     * Downloaded contents of a single record. Closing it removes the downloaded files.
+     */
+    inner class SpooledRecord(
+        private val files: Map<String, TempFile>,
+        private val size: Long,
+    ) : Closeable {
+        private val isClosed = AtomicBoolean(false)
+
+        /** Read the downloaded file [fileName] with [handling]. */
+        fun <T> read(fileName: String, handling: (InputStream) -> T): T {
+            val file = files[fileName] ?: throw IOException("File $fileName was not prefetched")
+            return file.inputStream().use(handling)
+        }
+
+        override fun close() {
+            if (isClosed.compareAndSet(false, true)) {
+                files.values.forEach { it.closeQuietly() }
+                release(size)
+            }
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(RecordContentSpool::class.java)
+
+        private fun TempFile.closeQuietly() {
+            try {
+                close()
+            } catch (ex: IOException) {
+                logger.warn("Failed to remove prefetched file {}", tempFile, ex)
+            }
+        }
+    }
+}
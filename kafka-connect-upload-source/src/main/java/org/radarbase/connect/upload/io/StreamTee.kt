@@ -0,0 +1,199 @@
+package org.radarbase.connect.upload.io
+
+import java.io.Closeable
+import java.io.IOException
+import java.io.InputStream
+import java.util.Objects
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Reads [source] once and makes its bytes available to [branchCount] branches, which are meant
+ * to be read concurrently by different threads. The source is read in blocks of [blockSize]
+ * bytes. At most [maxBufferedBlocks] blocks are kept for branches that lag behind, so a branch
+ * that is ahead waits for the slowest open branch. Closing a branch stops it from holding back
+ * the other branches.
+ *
+ * Closing the tee makes all branches fail, but does not close [source].
+ */
+class StreamTee(
+    private val source: InputStream,
+    branchCount: Int,
+    private val blockSize: Int = DEFAULT_BLOCK_SIZE,
+    private val maxBufferedBlocks: Int = DEFAULT_MAX_BUFFERED_BLOCKS,
+) : Closeable {
+    private val lock = ReentrantLock()
+    private val changed = lock.newCondition()
+    private val blocks = ArrayDeque<ByteArray>()
+
+    /** Index of the first block in [blocks]. */
+    private var firstBlock = 0L
+
+    /** Index of the next block that each branch reads, or [CLOSED] if the branch is closed. */
+    private val nextBlocks = LongArray(branchCount)
+    private var isReading = false
+    private var isEndOfInput = false
+    private var isClosed = false
+    private var failure: IOException? = null
+
+    /** Branches, which each read all bytes of the source. */
+    val branches: List<InputStream>
+
+    init {
+        require(branchCount > 0) { "Stream tee needs at least one branch" }
+        require(blockSize > 0) { "Stream tee block size must be positive" }
+        require(maxBufferedBlocks > 0) { "Stream tee must buffer at least one block" }
+        branches = List(branchCount) { Branch(it) }
+    }
+
+    /**
+     * Block [index] for [branch], reading it from the source if no other branch has.
+     * @return the block or null if the source has no more bytes.
+     */
+    private fun block(branch: Int, index: Long): ByteArray? {
+        lock.withLock {
+            nextBlocks[branch] = index
+            discardReadBlocks()
+            while (true) {
+                checkOpen()
+                if (index < firstBlock + blocks.size) {
+                    return blocks[(index - firstBlock).toInt()]
+                }
+                if (isEndOfInput) {
+                    return null
+                }
+                if (!isReading && blocks.size < maxBufferedBlocks) {
+                    break
+                }
+                changed.await()
+            }
+            isReading = true
+        }
+
+        var block: ByteArray? = null
+        var readFailure: IOException? = null
+        try {
+            // read outside the lock, so that other branches can read buffered blocks
+            block = source.readNBytes(blockSize)
+        } catch (ex: IOException) {
+            readFailure = ex
+        } finally {
+            val readBlock = block
+            lock.withLock {
+                isReading = false
+                when {
+                    readFailure != null -> failure = readFailure
+                    // any other exception is thrown in this branch, the others are stopped
+                    readBlock == null -> isClosed = true
+                    readBlock.isEmpty() -> isEndOfInput = true
+                    else -> blocks.addLast(readBlock)
+                }
+                changed.signalAll()
+            }
+        }
+        lock.withLock { checkOpen() }
+        return block?.takeIf { it.isNotEmpty() }
+    }
+
+    /** Remove blocks that all open branches have read. */
+    private fun discardReadBlocks() {
+        var minBlock = Long.MAX_VALUE
+        for (nextBlock in nextBlocks) {
+            if (nextBlock != CLOSED && nextBlock < minBlock) {
+                minBlock = nextBlock
+            }
+        }
+        var isDiscarded = false
+        while (blocks.isNotEmpty() && firstBlock < minBlock) {
+            blocks.removeFirst()
+            firstBlock++
+            isDiscarded = true
+        }
+        if (isDiscarded) {
+            changed.signalAll()
+        }
+    }
+
+    private fun checkOpen() {
+        failure?.let { throw IOException("Failed to read shared stream", it) }
+        if (isClosed) {
+            throw IOException("Shared stream was closed")
+        }
+    }
+
+    private fun closeBranch(branch: Int) {
+        lock.withLock {
+            nextBlocks[branch] = CLOSED
+            discardReadBlocks()
+        }
+    }
+
+    override fun close() {
+        lock.withLock {
+            isClosed = true
+            blocks.clear()
+            changed.signalAll()
+        }
+    }
+
+    private inner class Branch(private val branch: Int) : InputStream() {
+        private var block: ByteArray = EMPTY_BLOCK
+        private var blockIndex = -1L
+        private var position = 0
+        private var isBranchClosed = false
+
+        override fun read(): Int {
+            if (!fillBlock()) {
+                return -1
+            }
+            return block[position++].toInt() and 0xFF
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            Objects.checkFromIndexSize(off, len, b.size)
+            if (len == 0) {
+                return 0
+            }
+            if (!fillBlock()) {
+                return -1
+            }
+            val numRead = minOf(len, block.size - position)
+            block.copyInto(b, destinationOffset = off, startIndex = position, endIndex = position + numRead)
+            position += numRead
+            return numRead
+        }
+
+        override fun available(): Int = if (isBranchClosed) 0 else block.size - position
+
+        /** Make sure that the current block has unread bytes, or return false at the end of the stream. */
+        private fun fillBlock(): Boolean {
+            if (isBranchClosed) {
+                throw IOException("Stream closed")
+            }
+            if (position < block.size) {
+                return true
+            }
+            val nextBlock = block(branch, blockIndex + 1) ?: return false
+            blockIndex++
+            block = nextBlock
+            position = 0
+            return true
+        }
+
+        override fun close() {
+            if (!isBranchClosed) {
+                isBranchClosed = true
+                block = EMPTY_BLOCK
+                closeBranch(branch)
+            }
+        }
+    }
+
+    companion object {
+        const val DEFAULT_BLOCK_SIZE = 64 * 1024
+        const val DEFAULT_MAX_BUFFERED_BLOCKS = 16
+
+        private const val CLOSED = -1L
+        private val EMPTY_BLOCK = ByteArray(0)
+    }
+}
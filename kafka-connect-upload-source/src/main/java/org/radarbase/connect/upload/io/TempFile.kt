@@ -1,33 +1,154 @@
 package org.radarbase.connect.upload.io
 
+import org.radarbase.connect.upload.exception.TempFileTooLargeException
+import java.io.ByteArrayInputStream
 import java.io.Closeable
+import java.io.FilterInputStream
+import java.io.FilterOutputStream
 import java.io.InputStream
 import java.io.OutputStream
+import java.io.SequenceInputStream
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.concurrent.atomic.AtomicLong
 
+/**
+ * Temporary file in [tempDir]. Bytes written to it are reserved in [TempSpace] until the file
+ * is closed.
+ */
 class TempFile(
     tempDir: Path,
     prefix: String,
 ) : Closeable {
     val tempFile: Path = Files.createTempFile(tempDir, prefix, ".tmp")
 
-    fun outputStream(): OutputStream = Files.newOutputStream(tempFile)
+    private val reservedBytes = AtomicLong(0L)
 
-    fun inputStream(): InputStream = Files.newInputStream(tempFile)
+    fun outputStream(): OutputStream = ReservingOutputStream(Files.newOutputStream(tempFile))
+
+    fun inputStream(): InputStream = TempFileInputStream(tempFile)
 
     override fun close() {
-        Files.delete(tempFile)
+        try {
+            Files.delete(tempFile)
+        } finally {
+            TempSpace.release(reservedBytes.getAndSet(0L))
+        }
+    }
+
+    /** Stream that reserves temporary space before writing to the file. */
+    private inner class ReservingOutputStream(out: OutputStream) : FilterOutputStream(out) {
+        private var numWritten = 0L
+
+        override fun write(b: Int) {
+            reserve(1)
+            out.write(b)
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            reserve(len)
+            out.write(b, off, len)
+        }
+
+        private fun reserve(len: Int) {
+            numWritten += len
+            if (TempSpace.exceedsQuota(numWritten)) {
+                // waiting for other files to be removed would not help
+                throw TempFileTooLargeException(
+                    "Temporary file $tempFile does not fit in a temporary space of ${TempSpace.quotaBytes} bytes",
+                )
+            }
+            val missing = numWritten - reservedBytes.get()
+            if (missing > 0L) {
+                // reserve in steps to avoid contention on the temporary space, within the quota
+                var numReserved = maxOf(missing, RESERVE_STEP)
+                val quota = TempSpace.quotaBytes
+                if (quota > 0L) {
+                    numReserved = numReserved.coerceIn(missing, quota - reservedBytes.get())
+                }
+                TempSpace.reserve(numReserved)
+                reservedBytes.addAndGet(numReserved)
+            }
+        }
+    }
+
+    /**
+     * Stream of a temporary file. Its [path] allows readers to access the file directly, as
+     * long as the temporary file is not closed.
+     */
+    class TempFileInputStream(val path: Path) : FilterInputStream(Files.newInputStream(path))
+
+    /**
+     * Stream of contents that are kept in memory. Its [bytes] allow readers to access the
+     * contents directly.
+     */
+    class MemoryInputStream(val bytes: ByteArray) : ByteArrayInputStream(bytes)
+
+    /**
+     * Contents of a stream that can be read multiple times, either from memory or from a
+     * temporary file. Closing it removes the temporary file, if it is owned by the spool.
+     */
+    class Spool internal constructor(
+        /** Contents, if they are kept in memory. */
+        val bytes: ByteArray?,
+        /** File with the contents, if they are not kept in memory. */
+        val path: Path?,
+        private val file: TempFile?,
+    ) : Closeable {
+        fun inputStream(): InputStream = if (bytes != null) {
+            MemoryInputStream(bytes)
+        } else {
+            TempFileInputStream(checkNotNull(path))
+        }
+
+        override fun close() {
+            file?.close()
+        }
     }
 
     companion object {
+        private const val RESERVE_STEP = 64L * 1024L
+
         fun InputStream.copyToTempFile(
             tempDir: Path,
             prefix: String,
         ): TempFile = use {
             val tempFile = TempFile(tempDir, prefix)
-            copyTo(tempFile.outputStream())
+            try {
+                tempFile.outputStream().use { copyTo(it) }
+            } catch (ex: Throwable) {
+                tempFile.close()
+                throw ex
+            }
             return tempFile
         }
+
+        /**
+         * Store the contents of this stream so they can be read multiple times, and close it.
+         * Contents of at most [TempSpace.memoryThreshold] bytes are kept in memory, larger
+         * contents are copied to a temporary file in [tempDir]. Streams that are already stored
+         * in memory or in a temporary file are not copied.
+         */
+        fun InputStream.spool(
+            tempDir: Path,
+            prefix: String,
+        ): Spool = use { input ->
+            when (input) {
+                is MemoryInputStream -> Spool(input.bytes, null, null)
+                is TempFileInputStream -> Spool(null, input.path, null)
+                else -> {
+                    val threshold = TempSpace.memoryThreshold
+                    val head = input.readNBytes(threshold + 1)
+                    if (head.size <= threshold) {
+                        Spool(head, null, null)
+                    } else {
+                        Files.createDirectories(tempDir)
+                        val tempFile = SequenceInputStream(head.inputStream(), input)
+                            .copyToTempFile(tempDir, prefix)
+                        Spool(null, tempFile.tempFile, tempFile)
+                    }
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,202 @@
+package org.radarbase.connect.upload.io
+
+import org.radarbase.connect.upload.exception.TempFileTooLargeException
+import org.radarbase.connect.upload.exception.TempSpaceExhaustedException
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.lang.management.ManagementFactory
+import java.nio.file.FileVisitResult
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.SimpleFileVisitor
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Temporary storage of the connector, in the `upload-connector` directory of the system
+ * temporary directory. Bytes written to [TempFile]s count against a quota that is shared by
+ * all tasks in the worker. If the quota is used up, writers wait until other temporary files
+ * are removed, and fail with [TempSpaceExhaustedException] if that takes too long. Files that
+ * are larger than the whole quota fail with [TempFileTooLargeException], which is permanent.
+ * Before waiting, writers ask caches that were registered with [addReclaimer] to remove files.
+ */
+object TempSpace {
+    private val logger = LoggerFactory.getLogger(TempSpace::class.java)
+
+    const val DEFAULT_MEMORY_THRESHOLD = 1024 * 1024
+    val DEFAULT_RESERVE_TIMEOUT: Duration = Duration.ofMinutes(1)
+
+    /** Root directory of all temporary files. */
+    val root: Path = Paths.get(System.getProperty("java.io.tmpdir"), "upload-connector")
+
+    private val lock = ReentrantLock()
+    private val bytesReleased = lock.newCondition()
+    private var reservedBytes = 0L
+    private val reclaimers = CopyOnWriteArrayList<(Long) -> Long>()
+
+    /** Maximum number of bytes in temporary files, or 0 for no limit. */
+    @Volatile
+    var quotaBytes: Long = 0L
+        private set
+
+    /** Streams that are spooled are kept in memory if they are at most this many bytes. */
+    @Volatile
+    var memoryThreshold: Int = DEFAULT_MEMORY_THRESHOLD
+        private set
+
+    /** Maximum time to wait for temporary space when the quota is used up. */
+    @Volatile
+    var reserveTimeout: Duration = DEFAULT_RESERVE_TIMEOUT
+        private set
+
+    /** Number of bytes currently reserved by temporary files. */
+    val usedBytes: Long
+        get() = lock.withLock { reservedBytes }
+
+    /**
+     * Update the limits of the temporary space. Since the space is shared by all tasks in the
+     * worker, the last task to start determines them.
+     */
+    fun configure(
+        quotaBytes: Long,
+        memoryThreshold: Int = DEFAULT_MEMORY_THRESHOLD,
+        reserveTimeout: Duration = DEFAULT_RESERVE_TIMEOUT,
+    ) {
+        require(quotaBytes >= 0L) { "Temporary space quota must not be negative" }
+        require(memoryThreshold in 0 until Int.MAX_VALUE) { "Memory threshold must be a non-negative integer" }
+        require(!reserveTimeout.isNegative) { "Reserve timeout must not be negative" }
+        lock.withLock {
+            this.quotaBytes = quotaBytes
+            this.memoryThreshold = memoryThreshold
+            this.reserveTimeout = reserveTimeout
+            bytesReleased.signalAll()
+        }
+    }
+
+    /** Whether [bytes] do not fit in the temporary space, even if it is empty. */
+    fun exceedsQuota(bytes: Long): Boolean {
+        val quota = quotaBytes
+        return quota > 0L && bytes > quota
+    }
+
+    /**
+     * Register [reclaimer] to remove cached temporary files when the quota is used up. It is
+     * called with the number of bytes that are needed and returns the number of bytes that it
+     * removed.
+     */
+    fun addReclaimer(reclaimer: (Long) -> Long) {
+        reclaimers += reclaimer
+    }
+
+    /** Stop using [reclaimer] that was registered with [addReclaimer]. */
+    fun removeReclaimer(reclaimer: (Long) -> Long) {
+        reclaimers -= reclaimer
+    }
+
+    /** Directory [name] for temporary files. */
+    fun directory(name: String): Path = root.resolve(name)
+
+    /**
+     * Reserve [bytes] of the quota. If the quota is used up, cached files are removed first,
+     * and then this waits at most [reserveTimeout] for other temporary files to be removed.
+     * @throws TempSpaceExhaustedException if the bytes could not be reserved in time.
+     * @throws TempFileTooLargeException if the bytes do not fit in the quota at all.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    fun reserve(bytes: Long) {
+        if (bytes <= 0L) {
+            return
+        }
+        if (!exceedsQuota(bytes)) {
+            reclaim(bytes)
+        }
+        lock.withLock {
+            var remainingNanos = reserveTimeout.toNanos()
+            while (!fits(bytes)) {
+                if (bytes > quotaBytes) {
+                    throw TempFileTooLargeException("Cannot reserve $bytes bytes in a temporary space of $quotaBytes bytes")
+                }
+                if (remainingNanos <= 0L) {
+                    throw TempSpaceExhaustedException("Temporary space of $quotaBytes bytes is used up")
+                }
+                remainingNanos = bytesReleased.awaitNanos(remainingNanos)
+            }
+            reservedBytes += bytes
+        }
+    }
+
+    /**
+     * Ask reclaimers to remove enough cached files to fit [bytes]. Reclaimers are called
+     * without holding the lock, since they release the bytes of the files they remove.
+     */
+    private fun reclaim(bytes: Long) {
+        if (reclaimers.isEmpty()) {
+            return
+        }
+        var missingBytes = lock.withLock {
+            if (fits(bytes)) 0L else reservedBytes + bytes - quotaBytes
+        }
+        for (reclaimer in reclaimers) {
+            if (missingBytes <= 0L) {
+                break
+            }
+            missingBytes -= reclaimer(missingBytes)
+        }
+    }
+
+    private fun fits(bytes: Long): Boolean {
+        val quota = quotaBytes
+        return quota == 0L || reservedBytes + bytes <= quota
+    }
+
+    /** Release [bytes] that were reserved with [reserve]. */
+    fun release(bytes: Long) {
+        if (bytes <= 0L) {
+            return
+        }
+        lock.withLock {
+            reservedBytes -= bytes
+            bytesReleased.signalAll()
+        }
+    }
+
+    /**
+     * Remove temporary files that were left behind by earlier processes, for example because a
+     * task crashed. Only files that were last modified before this process started are removed,
+     * so files of running tasks are kept.
+     * @return the number of files removed.
+     */
+    fun sweep(): Int {
+        if (!Files.isDirectory(root)) {
+            return 0
+        }
+        val processStart = FileTime.fromMillis(ManagementFactory.getRuntimeMXBean().startTime)
+        var numRemoved = 0
+        Files.walkFileTree(
+            root,
+            object : SimpleFileVisitor<Path>() {
+                override fun visitFile(file: Path, attrs: BasicFileAttributes): FileVisitResult {
+                    if (attrs.isRegularFile && attrs.lastModifiedTime() < processStart) {
+                        try {
+                            Files.deleteIfExists(file)
+                            numRemoved++
+                        } catch (ex: IOException) {
+                            logger.warn("Failed to remove stale temporary file {}", file, ex)
+                        }
+                    }
+                    return FileVisitResult.CONTINUE
+                }
+
+                override fun visitFileFailed(file: Path, exc: IOException): FileVisitResult = FileVisitResult.CONTINUE
+
+                override fun postVisitDirectory(dir: Path, exc: IOException?): FileVisitResult = FileVisitResult.CONTINUE
+            },
+        )
+        return numRemoved
+    }
+}
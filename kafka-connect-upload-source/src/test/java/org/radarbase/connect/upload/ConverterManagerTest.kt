@@ -0,0 +1,109 @@
+package org.radarbase.connect.upload
+
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import org.apache.kafka.connect.source.SourceRecord
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.radarbase.connect.upload.api.PollDTO
+import org.radarbase.connect.upload.api.RecordContainerDTO
+import org.radarbase.connect.upload.api.RecordDTO
+import org.radarbase.connect.upload.api.RecordMetadataDTO
+import org.radarbase.connect.upload.api.UploadBackendClient
+import org.radarbase.connect.upload.converter.ConverterFactory
+import org.radarbase.connect.upload.converter.TopicData
+import org.radarbase.connect.upload.logging.ConverterLogRepository
+import org.radarbase.connect.upload.logging.Log
+import java.io.InputStream
+import java.time.Duration
+import java.util.ArrayDeque
+
+class ConverterManagerTest {
+    @Test
+    fun pollRecordsInBatches() {
+        val numberOfRecords = 10
+        val backend = FakeBackendClient((1L..numberOfRecords).map { id ->
+            RecordDTO(
+                id = id,
+                data = null,
+                sourceType = "test",
+                metadata = RecordMetadataDTO(revision = 1, status = "READY"),
+            )
+        })
+        val queue = SourceRecordQueue(100)
+
+        ConverterManager(
+            queue = queue,
+            converters = mapOf("test" to SingleRecordConverter()),
+            uploadClient = backend,
+            logRepository = ConverterLogRepository(),
+            pollDuration = Duration.ofMillis(200),
+            numberOfWorkers = 1,
+            pollSizeController = PollSizeController(1, 10, 10),
+        ).use {
+            val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos()
+            while (queue.size < numberOfRecords && System.nanoTime() < deadline) {
+                Thread.sleep(10)
+            }
+        }
+
+        assertEquals(numberOfRecords, queue.size)
+        // the poll size grows beyond a single free worker
+        assertTrue(backend.numberOfPolls < numberOfRecords) { "${backend.numberOfPolls} polls for $numberOfRecords records" }
+        assertTrue(backend.limits.max() > 1)
+    }
+
+    /** Backend that returns the given [records] once and accepts all status updates. */
+    private class FakeBackendClient(
+        records: List<RecordDTO>,
+    ) : UploadBackendClient(Interceptor { it.proceed(it.request()) }, OkHttpClient(), "http://localhost") {
+        private val records = ArrayDeque(records)
+
+        /** Limits of the polls that returned records. */
+        val limits = mutableListOf<Int>()
+
+        val numberOfPolls: Int
+            @Synchronized get() = limits.size
+
+        @Synchronized
+        override fun pollRecords(configuration: PollDTO): RecordContainerDTO {
+            val polled = generateSequence { records.pollFirst() }
+                .take(configuration.limit)
+                .toList()
+            if (polled.isNotEmpty()) {
+                limits += configuration.limit
+            }
+            return RecordContainerDTO(limit = configuration.limit, records = polled)
+        }
+
+        override fun updateStatus(recordId: Long, newStatus: RecordMetadataDTO): RecordMetadataDTO = newStatus
+
+        override fun addLogs(log: Log): RecordMetadataDTO = RecordMetadataDTO(revision = 1, status = "SUCCEEDED")
+    }
+
+    /** Converter that produces a single Kafka record per record. */
+    private class SingleRecordConverter : ConverterFactory.Converter {
+        override val sourceType: String = "test"
+
+        override fun convert(record: RecordDTO, produce: (SourceRecord) -> Unit) {
+            produce(SourceRecord(getPartition(), mapOf("recordId" to record.id), "test", null, record.id))
+        }
+
+        override fun convertStream(
+            record: RecordDTO,
+            openStream: (ConverterFactory.ContentsContext, (InputStream) -> Unit) -> Unit,
+            produce: (SourceRecord) -> Unit,
+        ) = convert(record, produce)
+
+        override fun convertFile(
+            context: ConverterFactory.ContentsContext,
+            inputStream: InputStream,
+            produce: (TopicData) -> Unit,
+        ) = Unit
+
+        override fun getPartition(): Map<String, Any> = mapOf("sourceType" to sourceType)
+
+        override fun close() = Unit
+    }
+}
@@ -0,0 +1,39 @@
+package org.radarbase.connect.upload
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class PollSizeControllerTest {
+    @Test
+    fun growsWhilePollsAreFull() {
+        val controller = PollSizeController(minimum = 1, maximum = 25, step = 10)
+        assertEquals(1, controller.nextPollSize(1000, 1000))
+        controller.update(requested = 1, received = 1)
+        assertEquals(11, controller.nextPollSize(1000, 1000))
+        controller.update(requested = 11, received = 11)
+        assertEquals(21, controller.nextPollSize(1000, 1000))
+        controller.update(requested = 21, received = 21)
+        assertEquals(25, controller.nextPollSize(1000, 1000))
+    }
+
+    @Test
+    fun shrinksToAvailableRecords() {
+        val controller = PollSizeController(minimum = 2, maximum = 100, step = 50)
+        controller.update(requested = 2, received = 2)
+        assertEquals(52, controller.pollSize)
+        controller.update(requested = 52, received = 7)
+        assertEquals(7, controller.pollSize)
+        controller.update(requested = 7, received = 0)
+        assertEquals(2, controller.pollSize)
+    }
+
+    @Test
+    fun shrinksWhenQueueIsNearlyFull() {
+        val controller = PollSizeController(minimum = 1, maximum = 100, step = 40)
+        controller.update(requested = 1, received = 1)
+        controller.update(requested = 41, received = 41)
+        assertEquals(81, controller.nextPollSize(500, 1000))
+        assertEquals(40, controller.nextPollSize(50, 1000))
+        assertEquals(20, controller.nextPollSize(0, 1000))
+    }
+}
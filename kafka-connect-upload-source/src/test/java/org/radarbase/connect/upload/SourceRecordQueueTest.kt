@@ -0,0 +1,27 @@
+package org.radarbase.connect.upload
+
+import org.apache.kafka.connect.source.SourceRecord
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Test
+import java.time.Duration
+
+class SourceRecordQueueTest {
+    @Test
+    fun drainWholeChunks() {
+        val queue = SourceRecordQueue(capacity = 10)
+        val records = (0 until 7).map { SourceRecord(emptyMap<String, Any>(), mapOf("i" to it), "topic", null, it) }
+
+        val batch = queue.batch(chunkSize = 3)
+        records.forEach(batch::add)
+        assertEquals(6, queue.size)
+        batch.flush()
+        assertEquals(7, queue.size)
+        assertEquals(3, queue.remainingCapacity)
+
+        assertEquals(records.subList(0, 3), queue.drain(maxRecords = 5, timeout = Duration.ZERO))
+        assertEquals(records.subList(3, 7), queue.drain(maxRecords = 5, timeout = Duration.ZERO))
+        assertEquals(0, queue.size)
+        assertNull(queue.drain(maxRecords = 5, timeout = Duration.ofMillis(10)))
+    }
+}
@@ -0,0 +1,24 @@
+package org.radarbase.connect.upload
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_COUNT_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.SOURCE_TASK_INDEX_CONFIG
+import org.radarbase.connect.upload.UploadSourceConnectorConfig.Companion.UPLOAD_SOURCE_CLIENT_CONFIG
+
+class UploadSourceConnectorTest {
+    @Test
+    fun taskConfigsAreSharded() {
+        val connector = UploadSourceConnector()
+        connector.start(mapOf(UPLOAD_SOURCE_CLIENT_CONFIG to "radar_upload_connect"))
+
+        val taskConfigs = connector.taskConfigs(3)
+
+        assertEquals(3, taskConfigs.size)
+        taskConfigs.forEachIndexed { index, config ->
+            assertEquals("radar_upload_connect", config[UPLOAD_SOURCE_CLIENT_CONFIG])
+            assertEquals(index.toString(), config[SOURCE_TASK_INDEX_CONFIG])
+            assertEquals("3", config[SOURCE_TASK_COUNT_CONFIG])
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.radarbase.connect.upload.converter
+
+import org.apache.avro.generic.IndexedRecord
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.mockito.Mockito.mock
+import org.radarbase.connect.upload.api.ContentsDTO
+import org.radarbase.connect.upload.api.RecordDTO
+import org.radarbase.connect.upload.api.RecordDataDTO
+import org.radarbase.connect.upload.api.RecordMetadataDTO
+import org.radarbase.connect.upload.converter.RecordConverter.Companion.createAvroData
+import org.radarbase.connect.upload.exception.InvalidFormatException
+import org.radarbase.connect.upload.logging.RecordLogger
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.random.Random
+
+class DelegatingProcessorTest {
+    @TempDir
+    lateinit var tempDir: Path
+
+    private val record = RecordDTO(
+        id = 1L,
+        metadata = RecordMetadataDTO(
+            revision = 1,
+            status = "PROCESSING",
+        ),
+        data = RecordDataDTO(
+            projectId = "testProject",
+            userId = "testUser",
+            sourceId = "testSource",
+        ),
+        sourceType = "test",
+    )
+
+    private val context = ConverterFactory.ContentsContext.create(
+        record = record,
+        contents = ContentsDTO(fileName = "data.bin", size = 3_000_000L),
+        logger = mock(RecordLogger::class.java),
+        avroData = createAvroData(),
+    )
+
+    @Test
+    fun readFileOnceWithAllProcessors() {
+        // larger than the buffer of the stream tee, so processors must read concurrently
+        val bytes = Random(1).nextBytes(3_000_000)
+        val first = ReadingProcessor("first")
+        val second = ReadingProcessor("second")
+        val processor = delegatingProcessor(first, second)
+
+        val produced = mutableListOf<TopicData>()
+        processor.processData(context, bytes.inputStream()) { produced += it }
+
+        assertArrayEquals(bytes, first.bytes)
+        assertArrayEquals(bytes, second.bytes)
+        assertEquals(listOf("first", "second"), produced.map { it.topic }.sorted())
+        assertEquals(0L, Files.list(tempDir).use { it.count() })
+    }
+
+    @Test
+    fun failingProcessorStopsOthers() {
+        val bytes = Random(2).nextBytes(3_000_000)
+        val processor = delegatingProcessor(
+            ReadingProcessor("first"),
+            object : FileProcessor {
+                override fun processData(
+                    context: ConverterFactory.ContentsContext,
+                    inputStream: InputStream,
+                    produce: (TopicData) -> Unit,
+                ) {
+                    inputStream.readNBytes(1000)
+                    throw InvalidFormatException("Invalid data")
+                }
+            },
+        )
+
+        assertThrows(InvalidFormatException::class.java) {
+            processor.processData(context, bytes.inputStream()) {}
+        }
+    }
+
+    private fun delegatingProcessor(
+        vararg processors: FileProcessor,
+    ) = DelegatingProcessor(
+        preProcessorFactories = emptyList(),
+        processorFactories = processors.map { processor ->
+            object : FileProcessorFactory {
+                override fun matches(contents: ContentsDTO): Boolean = true
+
+                override fun createProcessor(record: RecordDTO): FileProcessor = processor
+            }
+        },
+        tempDir = tempDir,
+        generateTempFilePrefix = { "test" },
+    )
+
+    /** Processor that stores the file and produces a single record to a topic. */
+    private class ReadingProcessor(private val topic: String) : FileProcessor {
+        lateinit var bytes: ByteArray
+
+        override fun processData(
+            context: ConverterFactory.ContentsContext,
+            inputStream: InputStream,
+            produce: (TopicData) -> Unit,
+        ) {
+            bytes = inputStream.readBytes()
+            produce(TopicData(topic, mock(IndexedRecord::class.java)))
+        }
+    }
+}
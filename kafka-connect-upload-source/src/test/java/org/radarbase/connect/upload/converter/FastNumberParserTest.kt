@@ -0,0 +1,59 @@
+package org.radarbase.connect.upload.converter
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import kotlin.random.Random
+
+internal class FastNumberParserTest {
+    @Test
+    fun parseEdgeCases() {
+        listOf(
+            "0", "-0", "+1", "1.", ".5", "-0.000", "9.81", "-0.25", "1600000000000", "1600000000000.123",
+            "1e10", "1E-10", "2.5e+3", "9007199254740993", "16777217", "0.1", "3.4028235e38", "3.5e38",
+            "1.7976931348623157e308", "1e309", "4.9e-324", "1e-400", "1.17549435e-38", "12345678901234567890",
+            "0.30000000000000004", " 1.5", "1.5f", "NaN", "-Infinity", "0x1p3", "00012.5000",
+        ).forEach { value ->
+            assertEquals(value.toDouble(), FastNumberParser.parseDouble(value), value)
+            assertEquals(value.toFloat(), FastNumberParser.parseFloat(value), value)
+        }
+    }
+
+    @Test
+    fun parseRandom() {
+        val random = Random(1)
+        repeat(100_000) {
+            val digits = random.nextLong(1L, 10_000_000_000_000_000L).toString()
+            val point = random.nextInt(0, digits.length + 1)
+            val exponent = random.nextInt(-330, 300)
+            val value = buildString {
+                if (random.nextBoolean()) append('-')
+                append(digits, 0, point)
+                append('.')
+                append(digits, point, digits.length)
+                if (random.nextBoolean()) append('e').append(exponent)
+            }
+            assertEquals(value.toDouble(), FastNumberParser.parseDouble(value), value)
+            assertEquals(value.toFloat(), FastNumberParser.parseFloat(value), value)
+        }
+    }
+
+    @Test
+    fun parseSlice() {
+        val line = "1000,-3.25,true"
+        assertEquals(1000L, FastNumberParser.parseLong(line, 0, 4))
+        assertEquals(-3.25, FastNumberParser.parseDouble(line, 5, 10))
+        assertTrue(FastNumberParser.parseBoolean(line.subSequence(11, 15)))
+        assertFalse(FastNumberParser.parseBoolean("yes"))
+    }
+
+    @Test
+    fun parseInvalid() {
+        listOf("", "-", ".", "1e", "1.2.3", "abc").forEach { value ->
+            assertThrows<NumberFormatException>(value) { FastNumberParser.parseDouble(value) }
+            assertThrows<NumberFormatException>(value) { FastNumberParser.parseFloat(value) }
+        }
+    }
+}
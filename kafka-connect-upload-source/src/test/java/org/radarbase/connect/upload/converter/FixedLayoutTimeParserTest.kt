@@ -0,0 +1,49 @@
+package org.radarbase.connect.upload.converter
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.time.ZoneOffset
+import java.time.format.DateTimeFormatter
+import java.time.format.DateTimeParseException
+
+internal class FixedLayoutTimeParserTest {
+    @Test
+    fun parseLikeDateTimeFormatter() {
+        mapOf(
+            "yyyy-MM-dd'T'HH:mm:ss'Z'" to listOf("2021-03-04T05:06:07Z", "2021-03-04T05:59:59Z", "2021-03-04T06:00:00Z", "2020-02-29T23:59:59Z"),
+            "yyyy-MM-dd HH:mm:ss" to listOf("1999-12-31 23:59:59", "2000-01-01 00:00:00", "2021-04-31 10:00:00"),
+            "yyyy-MM-dd'T'HH:mm:ss.SSS" to listOf("2021-03-04T05:06:07.123", "2021-03-04T05:06:07.999"),
+            "dd/MM/yyyy HH:mm:ss.S" to listOf("04/03/2021 05:06:07.5"),
+            "yyyy-MM-dd'T'HH:mm:ssZ" to listOf("2021-03-04T05:06:07+0130", "2021-03-04T05:06:07-0800", "2021-03-04T05:06:07+1800"),
+            "yyyyMMdd_HHmmss.SSSSSS" to listOf("20210304_050607.123456"),
+        ).forEach { (pattern, timestamps) ->
+            val parser = FixedLayoutTimeParser(pattern)
+            val reference = TimeFieldParser.DateFormatParser(DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC))
+            assertTrue(parser.isCompiled, pattern)
+            timestamps.forEach { timestamp ->
+                assertEquals(reference.timeFromString(timestamp), parser.timeFromString(timestamp), "$pattern: $timestamp")
+            }
+        }
+    }
+
+    @Test
+    fun fallback() {
+        val parser = FixedLayoutTimeParser("yyyy-MM-dd HH:mm:ss")
+        // hour 24 and mismatching layouts are left to the DateTimeFormatter
+        assertEquals(1614902400.0, parser.timeFromString("2021-03-04 24:00:00"))
+        assertThrows<DateTimeParseException> { parser.timeFromString("2021-03-04T05:06:07") }
+
+        // out-of-range offsets are rejected by the DateTimeFormatter
+        val offsetParser = FixedLayoutTimeParser("yyyy-MM-dd'T'HH:mm:ssZ")
+        listOf("2021-03-04T05:06:07+2575", "2021-03-04T05:06:07+0199", "2021-03-04T05:06:07-1830").forEach { timestamp ->
+            assertThrows<DateTimeParseException>(timestamp) { offsetParser.timeFromString(timestamp) }
+        }
+
+        val minuteParser = FixedLayoutTimeParser("yyyy-MM-dd HH:mm")
+        assertFalse(minuteParser.isCompiled)
+        assertEquals(1614834360.0, minuteParser.timeFromString("2021-03-04 05:06"))
+    }
+}
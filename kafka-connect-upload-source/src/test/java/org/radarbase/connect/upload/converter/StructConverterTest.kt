@@ -0,0 +1,89 @@
+package org.radarbase.connect.upload.converter
+
+import org.apache.avro.Schema
+import org.apache.avro.generic.GenericData
+import org.apache.avro.generic.GenericRecordBuilder
+import org.apache.avro.util.Utf8
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.radarbase.connect.upload.converter.RecordConverter.Companion.createAvroData
+import org.radarcns.kafka.ObservationKey
+import org.radarcns.passive.phone.PhoneAcceleration
+
+internal class StructConverterTest {
+    private val avroData = createAvroData()
+    private val converter = StructConverter(avroData)
+
+    @Test
+    fun convertSpecificRecord() {
+        val record = PhoneAcceleration(1.5, 2.5, 0.1f, 0.2f, -9.81f)
+        assertEquals(avroData.toConnectData(record.schema, record), converter.toConnectData(record))
+        // uses the compiled plan
+        assertEquals(avroData.toConnectData(record.schema, record), converter.toConnectData(record))
+    }
+
+    @Test
+    fun convertNestedRecord() {
+        val schema = Schema.Parser().parse(
+            """
+            {"type": "record", "name": "Outer", "namespace": "test", "fields": [
+              {"name": "name", "type": "string"},
+              {"name": "kind", "type": {"type": "enum", "name": "Kind", "symbols": ["A", "B"]}},
+              {"name": "values", "type": {"type": "array", "items": "double"}},
+              {"name": "inner", "type": ["null", {"type": "record", "name": "Inner", "fields": [
+                {"name": "count", "type": "int"},
+                {"name": "label", "type": ["null", "string"], "default": null}
+              ]}], "default": null}
+            ]}
+            """.trimIndent(),
+        )
+        val innerSchema = schema.getField("inner").schema().types[1]
+        val record = GenericRecordBuilder(schema)
+            .set("name", Utf8("outer"))
+            .set("kind", GenericData.EnumSymbol(schema.getField("kind").schema(), "B"))
+            .set("values", listOf(1.0, 2.0))
+            .set(
+                "inner",
+                GenericRecordBuilder(innerSchema)
+                    .set("count", 3)
+                    .set("label", null)
+                    .build(),
+            )
+            .build()
+
+        assertEquals(avroData.toConnectData(schema, record), converter.toConnectData(record))
+    }
+
+    @Test
+    fun convertLogicalTypeWithAvroData() {
+        val schema = Schema.Parser().parse(
+            """
+            {"type": "record", "name": "Dated", "namespace": "test", "fields": [
+              {"name": "time", "type": {"type": "long", "logicalType": "timestamp-millis"}}
+            ]}
+            """.trimIndent(),
+        )
+        val record = GenericRecordBuilder(schema)
+            .set("time", 1_614_902_400_000L)
+            .build()
+
+        assertEquals(avroData.toConnectData(schema, record), converter.toConnectData(record))
+    }
+
+    @Test
+    fun evictLeastRecentlyUsedSchema() {
+        val cache = StructConverter(avroData, maxSchemas = 1)
+        val acceleration = PhoneAcceleration(1.5, 2.5, 0.1f, 0.2f, -9.81f)
+        val key = ObservationKey("p", "u", "s")
+
+        cache.prewarm(listOf(PhoneAcceleration.getClassSchema()))
+        cache.toConnectData(acceleration)
+        assertEquals(1L, cache.hitCount)
+        assertEquals(0L, cache.missCount)
+
+        assertEquals(avroData.toConnectData(key.schema, key), cache.toConnectData(key))
+        assertEquals(1L, cache.missCount)
+        assertEquals(1L, cache.evictionCount)
+        assertEquals(1, cache.size)
+    }
+}
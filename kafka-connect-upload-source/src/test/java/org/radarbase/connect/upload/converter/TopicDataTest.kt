@@ -0,0 +1,83 @@
+package org.radarbase.connect.upload.converter
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Assumptions.assumeTrue
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito.mock
+import org.radarbase.connect.upload.api.ContentsDTO
+import org.radarbase.connect.upload.api.RecordDTO
+import org.radarbase.connect.upload.api.RecordDataDTO
+import org.radarbase.connect.upload.api.RecordMetadataDTO
+import org.radarbase.connect.upload.converter.RecordConverter.Companion.createAvroData
+import org.radarbase.connect.upload.logging.RecordLogger
+import org.radarcns.passive.phone.PhoneAcceleration
+import java.lang.management.ManagementFactory
+import com.sun.management.ThreadMXBean as AllocationThreadMXBean
+
+internal class TopicDataTest {
+    private val contents = ContentsDTO(fileName = "ACC.csv")
+
+    private val record = RecordDTO(
+        id = 1L,
+        metadata = RecordMetadataDTO(
+            revision = 1,
+            status = "PROCESSING",
+        ),
+        data = RecordDataDTO(
+            projectId = "testProject",
+            userId = "testUser",
+            sourceId = "testSource",
+            contents = setOf(contents),
+        ),
+        sourceType = "phone-acceleration",
+    )
+
+    private val context = ConverterFactory.ContentsContext.create(
+        record = record,
+        contents = contents,
+        logger = mock(RecordLogger::class.java),
+        avroData = createAvroData(),
+    )
+
+    private val partition = mapOf("source-type" to "phone-acceleration")
+
+    private val topicData = TopicData(
+        "android_phone_acceleration",
+        PhoneAcceleration(1.5, 2.5, 0.1f, 0.2f, -9.81f),
+    )
+
+    @Test
+    fun shareRecordObjects() {
+        val first = topicData.toSourceRecord(context, partition)
+        val second = topicData.toSourceRecord(context.copy(contents = ContentsDTO(fileName = "ACC2.csv")), partition)
+
+        assertSame(first.sourcePartition(), second.sourcePartition())
+        assertSame(first.sourceOffset(), second.sourceOffset())
+        assertSame(first.key(), second.key())
+        assertEquals(false, first.sourceOffset()[ConverterFactory.Converter.END_OF_RECORD_KEY])
+    }
+
+    @Test
+    fun allocatedBytesPerRecord() {
+        val threadBean = ManagementFactory.getThreadMXBean() as? AllocationThreadMXBean
+        assumeTrue(threadBean?.isThreadAllocatedMemorySupported == true)
+        threadBean!!.isThreadAllocatedMemoryEnabled = true
+        val threadId = Thread.currentThread().id
+
+        repeat(NUM_RECORDS) { topicData.toSourceRecord(context, partition) }
+
+        val start = threadBean.getThreadAllocatedBytes(threadId)
+        repeat(NUM_RECORDS) { topicData.toSourceRecord(context, partition) }
+        val bytesPerRecord = (threadBean.getThreadAllocatedBytes(threadId) - start) / NUM_RECORDS
+
+        // source record, struct and boxed values; no partition, offset or key
+        assertTrue(bytesPerRecord < MAX_BYTES_PER_RECORD) { "Allocated $bytesPerRecord bytes per record" }
+    }
+
+    companion object {
+        private const val NUM_RECORDS = 100_000
+        private const val MAX_BYTES_PER_RECORD = 1024L
+    }
+}
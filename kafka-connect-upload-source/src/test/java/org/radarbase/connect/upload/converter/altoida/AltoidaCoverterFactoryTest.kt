@@ -112,6 +112,32 @@ class AltoidaCoverterFactoryTest {
         assertThat(records.count(), greaterThan(1000))
     }
 
+    @Test
+    @DisplayName("Should convert archive entries concurrently in entry order")
+    fun testConcurrentEntryProcessing() {
+        val file = File("src/test/resources/ALTOIDA_ANDROID.zip")
+
+        fun convert(archiveParallelism: Int): List<TopicData> {
+            val context = ConverterFactory.ContentsContext.create(
+                record = record,
+                contents = ContentsDTO(
+                    contentType = "application/zip",
+                    fileName = "ALTOIDA_ANDROID.zip",
+                    createdDate = Instant.now(),
+                    size = 1L,
+                ),
+                logger = Mockito.mock(RecordLogger::class.java),
+                avroData = RecordConverter.createAvroData(),
+                archiveParallelism = archiveParallelism,
+            )
+            val records = mutableListOf<TopicData>()
+            converter.convertFile(context, file.inputStream(), records::add)
+            return records
+        }
+
+        assertEquals(convert(1), convert(4))
+    }
+
     @Test
     @DisplayName("Should be able to convert export.csv to TopicRecords")
     fun testValidExportCsvProcessing() {
@@ -0,0 +1,42 @@
+package org.radarbase.connect.upload.converter.archive
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.radarbase.connect.upload.converter.archive.ZipStreamIterator.Companion.zipStreamIteratorFactory
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+internal class ZipStreamIteratorTest {
+    @TempDir
+    lateinit var tempDir: Path
+
+    @Test
+    fun streamEntries() {
+        val bytes = ByteArrayOutputStream().use { out ->
+            ZipOutputStream(out).use { zip ->
+                zip.putNextEntry(ZipEntry("dir/"))
+                zip.putNextEntry(ZipEntry("dir/a.csv"))
+                zip.write("a,b\n1,2\n".toByteArray())
+                zip.putNextEntry(ZipEntry("b.csv"))
+                zip.write("c\n3\n".toByteArray())
+            }
+            out.toByteArray()
+        }
+
+        zipStreamIteratorFactory(ByteArrayInputStream(bytes), tempDir).use { iterator ->
+            assertTrue(iterator is ZipStreamIterator)
+            val contents = iterator.files()
+                .map { (entry, input) ->
+                    // closing an entry does not close the archive
+                    entry.name to input.use { it.readBytes().decodeToString() }
+                }
+                .toList()
+            assertEquals(listOf("dir/a.csv" to "a,b\n1,2\n", "b.csv" to "c\n3\n"), contents)
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
+
+internal class CsvChunkerTest {
+    @TempDir
+    lateinit var tempDir: Path
+
+    @Test
+    fun splitAtLineBoundaries() {
+        val path = write("H\n1\n22\n333\n")
+        val chunks = CsvChunker.split(path, 3)
+        assertEquals(
+            listOf(
+                CsvChunker.Chunk(2, 7, 2),
+                CsvChunker.Chunk(7, 11, 4),
+            ),
+            chunks,
+        )
+        assertEquals(listOf("1\n22\n", "333\n"), chunks!!.map { it.read(path) })
+    }
+
+    @Test
+    fun splitCarriageReturns() {
+        val path = write("H\r\n1\r2\r\n3")
+        val chunks = CsvChunker.split(path, 1)
+        assertEquals(
+            listOf(
+                CsvChunker.Chunk(3, 5, 2),
+                CsvChunker.Chunk(5, 8, 3),
+                CsvChunker.Chunk(8, 9, 4),
+            ),
+            chunks,
+        )
+        assertEquals(listOf("1\r", "2\r\n", "3"), chunks!!.map { it.read(path) })
+    }
+
+    @Test
+    fun splitHeaderOnly() {
+        assertEquals(emptyList<CsvChunker.Chunk>(), CsvChunker.split(write("H\n"), 10))
+    }
+
+    @Test
+    fun doNotSplitQuotes() {
+        assertNull(CsvChunker.split(write("H\n1\n\"2\n3\"\n"), 1))
+    }
+
+    private fun write(contents: String): Path = Files.createTempFile(tempDir, "chunks", ".csv").also {
+        Files.writeString(it, contents)
+    }
+
+    private fun CsvChunker.Chunk.read(path: Path): String = open(path).use {
+        it.readBytes().decodeToString()
+    }
+}
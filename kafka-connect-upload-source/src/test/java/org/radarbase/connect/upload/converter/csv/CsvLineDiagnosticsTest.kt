@@ -0,0 +1,64 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.radarbase.connect.upload.converter.csv.CsvLineDiagnostics.SkipReason
+
+internal class CsvLineDiagnosticsTest {
+    @Test
+    fun countSkippedLines() {
+        val diagnostics = CsvLineDiagnostics(maxSampleLines = 3)
+        assertTrue(diagnostics.isEmpty)
+        assertNull(diagnostics.summary())
+
+        (100 downTo 2).forEach { diagnostics.skip(SkipReason.EMPTY_VALUES, it) }
+        diagnostics.skip(SkipReason.EMPTY_LINE, 101)
+        // a second processor checking the same line
+        diagnostics.skip(SkipReason.EMPTY_LINE, 101)
+
+        assertEquals(99L, diagnostics.count(SkipReason.EMPTY_VALUES))
+        assertEquals(listOf(2, 3, 4), diagnostics.sampleLines(SkipReason.EMPTY_VALUES))
+        assertEquals(1L, diagnostics.count(SkipReason.EMPTY_LINE))
+        assertEquals(0L, diagnostics.count(SkipReason.SIZE_MISMATCH))
+        assertEquals(
+            "Skipped 100 lines: 1 empty lines (lines 101); 99 lines with empty values (lines 2, 3, 4, ...)",
+            diagnostics.summary(),
+        )
+    }
+
+    @Test
+    fun addChunkDiagnostics() {
+        val first = CsvLineDiagnostics(maxSampleLines = 3)
+        val second = CsvLineDiagnostics(maxSampleLines = 3)
+        // two processors checking the same lines of each chunk
+        listOf(5, 5, 6, 6).forEach { first.skip(SkipReason.SIZE_MISMATCH, it) }
+        listOf(2, 2, 3, 3).forEach { second.skip(SkipReason.SIZE_MISMATCH, it) }
+        second.skip(SkipReason.EMPTY_LINE, 4)
+
+        val diagnostics = CsvLineDiagnostics(maxSampleLines = 3)
+        diagnostics.addAll(first)
+        diagnostics.addAll(second)
+
+        assertEquals(4L, diagnostics.count(SkipReason.SIZE_MISMATCH))
+        assertEquals(listOf(2, 3, 5), diagnostics.sampleLines(SkipReason.SIZE_MISMATCH))
+        assertEquals(1L, diagnostics.count(SkipReason.EMPTY_LINE))
+        assertEquals(5L, diagnostics.totalCount)
+    }
+
+    @Test
+    fun countLineWithMultipleReasonsOnce() {
+        val diagnostics = CsvLineDiagnostics()
+        // processors with different headers skip the same line for different reasons
+        diagnostics.skip(SkipReason.SIZE_MISMATCH, 2)
+        diagnostics.skip(SkipReason.EMPTY_VALUES, 2)
+        diagnostics.skip(SkipReason.EMPTY_VALUES, 3)
+
+        assertEquals(2L, diagnostics.totalCount)
+        assertEquals(
+            "Skipped 2 lines: 1 lines with a different size than the header (lines 2); 2 lines with empty values (lines 2, 3)",
+            diagnostics.summary(),
+        )
+    }
+}
@@ -0,0 +1,38 @@
+package org.radarbase.connect.upload.converter.csv
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+internal class CsvRowTest {
+    @Test
+    fun readByIndex() {
+        val row = CsvRow(listOf("TIMESTAMP", "X", "Y"))
+        val columns = row.columnIndices(listOf("Y", "X", "Z"))
+        assertArrayEquals(intArrayOf(2, 1, -1), columns)
+
+        row.update(arrayOf("1000", "0.5", "2"), 2)
+        assertEquals(0.5f, row.getFloat(columns[1]))
+        assertEquals(2.0, row.getDouble(columns[0]))
+        assertEquals("1000", row["TIMESTAMP"])
+        assertThrows<NoSuchElementException> { row["Z"] }
+
+        row.update(arrayOf("2000", "1.5", "3"), 3)
+        assertEquals(1.5f, row.getFloat(columns[1]))
+        assertEquals(3, row.lineNumber)
+    }
+
+    @Test
+    fun toMap() {
+        val row = CsvRow(listOf("TIMESTAMP", "X", "Y"))
+        row.update(arrayOf("1000", "0.5"), 2)
+        val map = row.toMap()
+        assertEquals(mapOf("TIMESTAMP" to "1000", "X" to "0.5"), map)
+        assertSame(map, row.toMap())
+
+        row.update(arrayOf("2000", "1.5", "3"), 3)
+        assertEquals(mapOf("TIMESTAMP" to "2000", "X" to "1.5", "Y" to "3"), row.toMap())
+    }
+}
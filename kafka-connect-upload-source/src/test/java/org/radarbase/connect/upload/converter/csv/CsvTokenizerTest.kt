@@ -0,0 +1,62 @@
+package org.radarbase.connect.upload.converter.csv
+
+import com.opencsv.CSVReader
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.radarbase.connect.upload.exception.InvalidFormatException
+import java.io.StringReader
+
+internal class CsvTokenizerTest {
+    @Test
+    fun readQuotedFields() {
+        val csv = "A,B,C\r\n1,\"x,\"\"y\"\"\",\n\n  \"multi\nline\",2.5,\"\"\n"
+        assertEquals(
+            listOf(
+                listOf("A", "B", "C"),
+                listOf("1", "x,\"y\"", ""),
+                listOf(""),
+                listOf("multi\nline", "2.5", ""),
+            ),
+            tokenize(csv),
+        )
+    }
+
+    @Test
+    fun matchesOpenCsv() {
+        val csv = "TIMESTAMP,X,Y,Z\n1000,0.1,-0.2,9.81\n1001,\"0,1\",\"\",9.80\n\n1002,0.3,0.4\r\n1003,1,2,3"
+        val expected = CSVReader(StringReader(csv)).use { reader ->
+            generateSequence { reader.readNext()?.toList() }.toList()
+        }
+        assertEquals(expected, tokenize(csv, bufferSize = 4))
+    }
+
+    @Test
+    fun readFieldViews() {
+        CsvTokenizer(StringReader("12,-3\n45,6\n"), bufferSize = 2).use { tokenizer ->
+            tokenizer.next()
+            val field = tokenizer.field(1)
+            assertEquals("-3", field.toString())
+            assertEquals(-3, Integer.parseInt(field, 0, field.length, 10))
+            tokenizer.next()
+            assertArrayEquals(arrayOf("45", "6"), tokenizer.toArray())
+            assertEquals(2, tokenizer.lineCount)
+            assertFalse(tokenizer.next())
+        }
+    }
+
+    @Test
+    fun unterminatedQuote() {
+        CsvTokenizer(StringReader("A\n\"abc\n")).use { tokenizer ->
+            tokenizer.next()
+            assertThrows<InvalidFormatException> { tokenizer.next() }
+        }
+    }
+
+    private fun tokenize(csv: String, bufferSize: Int = CsvTokenizer.DEFAULT_BUFFER_SIZE): List<List<String>> =
+        CsvTokenizer(StringReader(csv), bufferSize).use { tokenizer ->
+            generateSequence { tokenizer.takeIf { it.next() }?.toArray()?.toList() }.toList()
+        }
+}
@@ -0,0 +1,39 @@
+package org.radarbase.connect.upload.io
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.radarbase.connect.upload.converter.archive.ZipChannelIterator
+import java.io.ByteArrayOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.random.Random
+
+class RangeSeekableByteChannelTest {
+    @Test
+    fun readSelectedZipEntries() {
+        val bytes = ByteArrayOutputStream().use { out ->
+            ZipOutputStream(out).use { zip ->
+                zip.putNextEntry(ZipEntry("images/640_480/large.jpg"))
+                zip.write(Random(1).nextBytes(200_000))
+                zip.putNextEntry(ZipEntry("data.csv"))
+                zip.write("a,b\n1,2\n".toByteArray())
+            }
+            out.toByteArray()
+        }
+
+        var bytesRead = 0L
+        val channel = RangeSeekableByteChannel(bytes.size.toLong(), blockSize = 4096) { range ->
+            bytesRead += range.last - range.first + 1
+            bytes.copyOfRange(range.first.toInt(), range.last.toInt() + 1)
+        }
+
+        ZipChannelIterator(channel).use { iterator ->
+            val contents = iterator.files { !it.name.startsWith("images/") }
+                .map { (entry, input) -> entry.name to input.use { it.readBytes().decodeToString() } }
+                .toList()
+            assertEquals(listOf("data.csv" to "a,b\n1,2\n"), contents)
+        }
+        assertTrue(bytesRead < bytes.size / 10) { "Read $bytesRead of ${bytes.size} bytes" }
+    }
+}
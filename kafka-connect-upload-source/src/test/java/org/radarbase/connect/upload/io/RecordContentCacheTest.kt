@@ -0,0 +1,96 @@
+package org.radarbase.connect.upload.io
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.radarbase.connect.upload.api.ContentsDTO
+import org.radarbase.connect.upload.exception.ConversionTemporarilyFailedException
+import org.radarbase.connect.upload.io.TempFile.Companion.spool
+import java.io.IOException
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.time.Instant
+import kotlin.random.Random
+
+class RecordContentCacheTest {
+    @TempDir
+    lateinit var tempDir: Path
+
+    @AfterEach
+    fun tearDown() {
+        TempSpace.configure(quotaBytes = 0L)
+    }
+
+    @Test
+    fun cacheDownloadsAcrossRetries() {
+        val bytes = Random(1).nextBytes(100_000)
+        val contents = ContentsDTO(fileName = "data.cwa", size = bytes.size.toLong(), createdDate = Instant.now())
+        var numDownloads = 0
+        val download: ((InputStream) -> Unit) -> Unit = { handling ->
+            numDownloads++
+            bytes.inputStream().use(handling)
+        }
+
+        RecordContentCache(maxBytes = 150_000L, cacheDir = tempDir).use { cache ->
+            // conversion fails permanently halfway, so the file will not be needed again
+            assertThrows(IOException::class.java) {
+                cache.read(1L, contents, { input ->
+                    input.readNBytes(1000)
+                    throw IOException("Invalid file")
+                }, download)
+            }
+            assertFalse(cache.contains(1L, contents))
+            assertEquals(0L, Files.list(tempDir).use { it.count() })
+
+            // conversion fails temporarily halfway, but the whole file is still cached
+            assertThrows(ConversionTemporarilyFailedException::class.java) {
+                cache.read(1L, contents, { input ->
+                    input.readNBytes(1000)
+                    throw ConversionTemporarilyFailedException("Upload failed")
+                }, download)
+            }
+            assertTrue(cache.contains(1L, contents))
+
+            cache.read(1L, contents, { input -> assertArrayEquals(bytes, input.readBytes()) }, download)
+            assertEquals(2, numDownloads)
+            assertEquals(1L, cache.hitCount)
+            assertEquals(2L, cache.missCount)
+
+            // another file of the same record does not fit next to the first
+            val otherContents = contents.copy(fileName = "other.cwa")
+            cache.read(1L, otherContents, { it.readBytes() }, download)
+            assertEquals(3, numDownloads)
+            assertEquals(1L, cache.evictionCount)
+            assertFalse(cache.contains(1L, contents))
+            assertTrue(cache.contains(1L, otherContents))
+            assertEquals(bytes.size.toLong(), cache.cachedBytes)
+        }
+    }
+
+    @Test
+    fun evictWhenTempSpaceIsUsedUp() {
+        TempSpace.configure(quotaBytes = 250_000L, memoryThreshold = 0, reserveTimeout = Duration.ofMillis(100))
+        val bytes = Random(1).nextBytes(100_000)
+        val contents = ContentsDTO(fileName = "data.cwa", size = bytes.size.toLong(), createdDate = Instant.now())
+
+        // the cache itself is larger than the quota
+        RecordContentCache(maxBytes = 1_000_000L, cacheDir = tempDir.resolve("cache")).use { cache ->
+            cache.read(1L, contents, { it.readBytes() }) { handling -> bytes.inputStream().use(handling) }
+            assertTrue(cache.contains(1L, contents))
+
+            // a conversion needs the space of the cached file
+            Random(2).nextBytes(200_000).inputStream().spool(tempDir, "spool").close()
+            assertFalse(cache.contains(1L, contents))
+            assertEquals(1L, cache.evictionCount)
+            assertEquals(0L, cache.cachedBytes)
+        }
+        assertEquals(0L, TempSpace.usedBytes)
+    }
+}
@@ -0,0 +1,63 @@
+package org.radarbase.connect.upload.io
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+internal class StreamTeeTest {
+    @Test
+    fun readBranchesConcurrently() {
+        val data = Random(1).nextBytes(100_000)
+        val executor = Executors.newFixedThreadPool(3)
+        try {
+            StreamTee(ByteArrayInputStream(data), 3, blockSize = 1000, maxBufferedBlocks = 4).use { tee ->
+                val results = tee.branches
+                    .mapIndexed { index, branch ->
+                        executor.submit(
+                            Callable {
+                                branch.use {
+                                    if (index == 0) {
+                                        // read single bytes to lag behind the other branches
+                                        generateSequence { it.read().takeIf { b -> b != -1 }?.toByte() }
+                                            .toList()
+                                            .toByteArray()
+                                    } else {
+                                        it.readBytes()
+                                    }
+                                }
+                            },
+                        )
+                    }
+                    .map { it.get(10, TimeUnit.SECONDS) }
+
+                results.forEach { assertArrayEquals(data, it) }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    fun closedBranchDoesNotBlock() {
+        val data = Random(2).nextBytes(10_000)
+        StreamTee(ByteArrayInputStream(data), 2, blockSize = 100, maxBufferedBlocks = 2).use { tee ->
+            assertEquals(1, tee.branches[1].readNBytes(1).size)
+            tee.branches[1].close()
+            assertArrayEquals(data, tee.branches[0].readBytes())
+        }
+    }
+
+    @Test
+    fun closeTee() {
+        val tee = StreamTee(ByteArrayInputStream(ByteArray(10)), 2)
+        tee.close()
+        assertThrows<IOException> { tee.branches[0].read() }
+    }
+}
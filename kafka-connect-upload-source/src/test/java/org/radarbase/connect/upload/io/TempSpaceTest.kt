@@ -0,0 +1,83 @@
+package org.radarbase.connect.upload.io
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.radarbase.connect.upload.exception.TempFileTooLargeException
+import org.radarbase.connect.upload.exception.TempSpaceExhaustedException
+import org.radarbase.connect.upload.io.TempFile.Companion.spool
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import kotlin.random.Random
+
+class TempSpaceTest {
+    @TempDir
+    lateinit var tempDir: Path
+
+    @AfterEach
+    fun tearDown() {
+        TempSpace.configure(quotaBytes = 0L)
+    }
+
+    @Test
+    fun spoolSmallContentsInMemory() {
+        TempSpace.configure(quotaBytes = 0L, memoryThreshold = 1024)
+
+        val small = Random(1).nextBytes(1024)
+        small.inputStream().spool(tempDir, "small").use { spool ->
+            assertNotNull(spool.bytes)
+            assertNull(spool.path)
+            assertArrayEquals(small, spool.inputStream().readBytes())
+        }
+
+        val large = Random(2).nextBytes(1025)
+        val path = large.inputStream().spool(tempDir, "large").use { spool ->
+            assertNull(spool.bytes)
+            val path = checkNotNull(spool.path)
+            // read twice
+            assertArrayEquals(large, spool.inputStream().use { it.readBytes() })
+            assertArrayEquals(large, spool.inputStream().use { it.readBytes() })
+            path
+        }
+        assertFalse(Files.exists(path))
+    }
+
+    @Test
+    fun waitForQuota() {
+        TempSpace.configure(quotaBytes = 1_000_000L, memoryThreshold = 0, reserveTimeout = Duration.ofMillis(100))
+
+        val first = Random(1).nextBytes(800_000).inputStream().spool(tempDir, "first")
+        assertThrows(TempSpaceExhaustedException::class.java) {
+            Random(2).nextBytes(800_000).inputStream().spool(tempDir, "second")
+        }
+        first.close()
+        assertEquals(0L, TempSpace.usedBytes)
+
+        Random(3).nextBytes(800_000).inputStream().spool(tempDir, "third").close()
+        assertEquals(0L, Files.list(tempDir).use { it.count() })
+    }
+
+    @Test
+    fun failFileLargerThanQuota() {
+        // the timeout is long enough that waiting for space would fail the test
+        TempSpace.configure(quotaBytes = 100_000L, memoryThreshold = 0, reserveTimeout = Duration.ofMinutes(1))
+
+        assertThrows(TempFileTooLargeException::class.java) {
+            Random(1).nextBytes(200_000).inputStream().spool(tempDir, "large")
+        }
+        assertEquals(0L, TempSpace.usedBytes)
+        assertEquals(0L, Files.list(tempDir).use { it.count() })
+
+        // files smaller than a reserve step still fit in a small quota
+        TempSpace.configure(quotaBytes = 1_000L, memoryThreshold = 0, reserveTimeout = Duration.ofMillis(100))
+        Random(2).nextBytes(1_000).inputStream().spool(tempDir, "small").close()
+        assertEquals(0L, TempSpace.usedBytes)
+    }
+}
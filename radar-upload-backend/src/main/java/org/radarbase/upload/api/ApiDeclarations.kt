@@ -58,6 +58,10 @@ data class RecordMetadataDTO(
     var callbackUrl: String? = null,
 )
 
+data class RecordMetadataContainerDTO(
+    var metadata: List<RecordMetadataDTO>,
+)
+
 data class RecordDTO(
     var id: Long?,
     var data: RecordDataDTO?,
@@ -70,6 +74,8 @@ data class RecordContainerDTO(
     var page: Int? = 1,
     var size: Int? = null,
     var totalElements: Long? = null,
+    /** Record ID to pass as the after parameter to retrieve the next page, if any. */
+    var next: Long? = null,
 )
 
 data class SourceTypeDTO(
@@ -89,15 +95,20 @@ data class SourceTypeContainerDTO(
 data class PollDTO(
     var limit: Int = 10,
     var supportedConverters: Set<String>,
+    /** Index of the polling task, only records with ID modulo [taskCount] equal to this are polled. */
+    var taskIndex: Int = 0,
+    var taskCount: Int = 1,
 )
 
 data class Page(
     val pageNumber: Int = 1,
     val pageSize: Int? = null,
     val totalElements: Long? = null,
+    /** Only include elements with an ID lower than this, instead of skipping previous pages. */
+    val after: Long? = null,
 ) {
     val offset: Int
-        get() = (this.pageNumber - 1) * this.pageSize!!
+        get() = if (after != null) 0 else (this.pageNumber - 1) * this.pageSize!!
 
     fun createValid(maximum: Int? = null): Page {
         val imposedNumber = pageNumber.coerceAtLeast(1)
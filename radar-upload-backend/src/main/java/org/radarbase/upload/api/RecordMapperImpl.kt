@@ -114,6 +114,7 @@ class RecordMapperImpl(
         size = page?.pageSize,
         totalElements = page?.totalElements,
         page = page?.pageNumber,
+        next = if (page?.pageSize != null && records.size >= page.pageSize) records.lastOrNull()?.id else null,
     )
 
     override suspend fun fromContent(content: RecordContent): ContentsDTO {
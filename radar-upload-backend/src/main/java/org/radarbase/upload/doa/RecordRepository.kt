@@ -41,10 +41,36 @@ interface RecordRepository {
     suspend fun readFileContent(id: Long, revision: Int, fileName: String, range: LongRange? = null): BlobReader?
     suspend fun update(record: Record): Record
     suspend fun updateMetadata(id: Long, metadata: RecordMetadataDTO): RecordMetadata
+
+    /**
+     * Update the metadata of multiple records in a single transaction. Each update must have its
+     * record ID set. Updates that conflict with the current state are skipped and the current
+     * metadata of that record is returned instead. Updates of missing records are omitted.
+     */
+    suspend fun updateMetadata(metadata: List<RecordMetadataDTO>): List<RecordMetadata>
     suspend fun updateContent(record: Record, fileName: String, contentType: String, stream: InputStream, length: Long): RecordContent
     suspend fun readMetadata(id: Long): RecordMetadata?
-    suspend fun query(page: Page, projectId: String, userId: String?, status: String?, sourceType: String?): Pair<List<Record>, Page>
-    suspend fun poll(limit: Int, supportedConverters: Set<String>): List<Record>
+
+    /**
+     * Query records of a project, ordered by descending ID. If [Page.after] is set, only records
+     * with a lower ID are returned, otherwise the page number is used as an offset. The total
+     * number of matching records is only counted if [countTotal] is true.
+     */
+    suspend fun query(
+        page: Page,
+        projectId: String,
+        userId: String?,
+        status: String?,
+        sourceType: String?,
+        countTotal: Boolean = true,
+    ): Pair<List<Record>, Page>
+
+    /**
+     * Poll at most [limit] READY records of given [supportedConverters] and mark them as QUEUED.
+     * Only records with an ID that modulo [taskCount] equals [taskIndex] are polled, so that
+     * multiple polling tasks do not compete for the same records.
+     */
+    suspend fun poll(limit: Int, supportedConverters: Set<String>, taskIndex: Int = 0, taskCount: Int = 1): List<Record>
     suspend fun readRecordContent(recordId: Long, fileName: String): RecordContent?
     suspend fun deleteContents(record: Record, fileName: String)
     suspend fun resetStaleProcessing(sourceType: String, age: Duration): Int
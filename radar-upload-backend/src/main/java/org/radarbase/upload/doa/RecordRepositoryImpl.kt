@@ -24,6 +24,7 @@ import jakarta.persistence.EntityManager
 import jakarta.persistence.LockModeType
 import jakarta.persistence.PessimisticLockScope
 import jakarta.ws.rs.core.Context
+import org.hibernate.LockOptions
 import org.hibernate.engine.jdbc.BlobProxy
 import org.hibernate.engine.jdbc.ClobProxy
 import org.radarbase.jersey.exception.HttpBadRequestException
@@ -82,7 +83,14 @@ class RecordRepositoryImpl(
         merge(metadataToSave)
     }
 
-    override suspend fun query(page: Page, projectId: String, userId: String?, status: String?, sourceType: String?): Pair<List<Record>, Page> {
+    override suspend fun query(
+        page: Page,
+        projectId: String,
+        userId: String?,
+        status: String?,
+        sourceType: String?,
+        countTotal: Boolean,
+    ): Pair<List<Record>, Page> {
         val queryWhere = mutableListOf<String>()
         val queryParams = mutableMapOf<String, Any>()
 
@@ -91,26 +99,28 @@ class RecordRepositoryImpl(
             queryParams["userId"] = userId
         }
         if (status != null) {
-            queryWhere += " AND r.metadata.status = :status"
+            queryWhere += " AND m.status = :status"
             queryParams["status"] = status
         }
         if (sourceType != null) {
-            queryWhere += " AND r.sourceType.name = :sourceType"
+            queryWhere += " AND st.name = :sourceType"
             queryParams["sourceType"] = sourceType
         }
 
         val queryWhereString = queryWhere.joinToString(separator = "")
+        val afterWhereString = if (page.after != null) " AND r.id < :after" else ""
 
         val queryString = """
-            SELECT r
-            FROM Record r
+            $FETCH_RECORDS_QUERY
             WHERE r.projectId = :projectId
-                $queryWhereString
+                $queryWhereString$afterWhereString
             ORDER BY r.id DESC
         """.trimIndent()
         val countQueryString = """
             SELECT count(r)
             FROM Record r
+                JOIN r.metadata m
+                LEFT JOIN r.sourceType st
             WHERE r.projectId = :projectId
                 $queryWhereString
         """.trimIndent()
@@ -123,15 +133,20 @@ class RecordRepositoryImpl(
                 .setFirstResult(actualPage.offset)
                 .setMaxResults(actualPage.pageSize!!)
 
-            val countQuery = createQuery(countQueryString)
-                .setParameter("projectId", projectId)
-
-            queryParams.forEach { (k, v) ->
-                query.setParameter(k, v)
-                countQuery.setParameter(k, v)
+            if (actualPage.after != null) {
+                query.setParameter("after", actualPage.after)
             }
+            queryParams.forEach { (k, v) -> query.setParameter(k, v) }
             val records = query.resultList
-            val count = countQuery.singleResult as Long
+
+            val count = if (countTotal) {
+                val countQuery = createQuery(countQueryString)
+                    .setParameter("projectId", projectId)
+                queryParams.forEach { (k, v) -> countQuery.setParameter(k, v) }
+                countQuery.singleResult as Long
+            } else {
+                null
+            }
 
             Pair(records, actualPage.copy(totalElements = count))
         }
@@ -196,17 +211,27 @@ class RecordRepositoryImpl(
         merge(record)
     }
 
-    override suspend fun poll(limit: Int, supportedConverters: Set<String>): List<Record> = transact {
+    override suspend fun poll(
+        limit: Int,
+        supportedConverters: Set<String>,
+        taskIndex: Int,
+        taskCount: Int,
+    ): List<Record> = transact {
         setProperty("jakarta.persistence.lock.scope", PessimisticLockScope.EXTENDED)
 
-        var queryString = "SELECT r FROM Record r WHERE r.metadata.status = :status "
+        // Only select IDs while locking, so that no associations are loaded for each record.
+        var queryString = "SELECT r.id FROM Record r JOIN r.metadata m WHERE m.status = :status "
 
         if (supportedConverters.isNotEmpty()) {
             queryString += " AND r.sourceType.name in :sourceTypes"
         }
 
-        queryString += " ORDER BY r.metadata.modifiedDate"
-        val query = createQuery(queryString, Record::class.java)
+        if (taskCount > 1) {
+            queryString += " AND MOD(r.id, :taskCount) = :taskIndex"
+        }
+
+        queryString += " ORDER BY m.modifiedDate"
+        val query = createQuery(queryString, Long::class.javaObjectType)
             .setParameter("status", RecordStatus.READY)
             .setMaxResults(limit)
             .setLockMode(LockModeType.PESSIMISTIC_WRITE)
@@ -215,17 +240,44 @@ class RecordRepositoryImpl(
             query.setParameter("sourceTypes", supportedConverters)
         }
 
-        query.resultStream
-            .peek {
-                it.metadata.apply {
-                    status = RecordStatus.QUEUED
-                    message = "Record is queued for processing"
-                    revision += 1
-                    modifiedDate = Instant.now()
-                    merge(this)
-                }
-            }
-            .toList()
+        if (taskCount > 1) {
+            query.setParameter("taskCount", taskCount.toLong())
+            query.setParameter("taskIndex", taskIndex.toLong())
+        }
+
+        // Skip records that are locked by a concurrent poll instead of waiting for them. Dialects
+        // without SKIP LOCKED support, like HSQLDB, fall back to a regular FOR UPDATE.
+        val ids = query
+            .setHint("jakarta.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+            .resultList
+
+        if (ids.isEmpty()) {
+            return@transact emptyList()
+        }
+
+        val modifiedDate = Instant.now()
+        createQuery(
+            """
+                UPDATE RecordMetadata m
+                SET m.status = :status, m.message = :message, m.revision = m.revision + 1, m.modifiedDate = :modifiedDate
+                WHERE m.id IN :ids
+            """.trimIndent(),
+        )
+            .setParameter("status", RecordStatus.QUEUED)
+            .setParameter("message", QUEUED_MESSAGE)
+            .setParameter("modifiedDate", modifiedDate)
+            .setParameter("ids", ids)
+            .executeUpdate()
+
+        // The bulk update bypasses the persistence context, so remove any outdated records from
+        // it before loading the polled records.
+        clear()
+        val recordsById = createQuery("$FETCH_RECORDS_QUERY WHERE r.id IN :ids", Record::class.java)
+            .setParameter("ids", ids)
+            .resultList
+            .associateBy { it.id }
+
+        ids.mapNotNull { recordsById[it] }
     }
 
     override suspend fun readRecordContent(recordId: Long, fileName: String): RecordContent? = transact {
@@ -256,13 +308,14 @@ class RecordRepositoryImpl(
             )
 
             object : RecordRepository.BlobReader {
+                // LongRange.count() would iterate over every offset in the range
                 override val stream: InputStream = if (range == null ||
-                    (range.first == 0L && range.count().toLong() == blob.get().length())
+                    (range.first == 0L && range.last + 1 == blob.get().length())
                 ) {
                     blob.get().binaryStream
                 } else {
                     val offset = range.first + 1
-                    val limit = range.count().toLong()
+                    val limit = range.last - range.first + 1
                     logger.debug(
                         "Reading record {} file {} from offset {} with length {}",
                         id,
@@ -334,6 +387,28 @@ class RecordRepositoryImpl(
     }
 
     override suspend fun updateMetadata(id: Long, metadata: RecordMetadataDTO): RecordMetadata = transact {
+        updateMetadataInTransaction(id, metadata)
+    }
+
+    override suspend fun updateMetadata(metadata: List<RecordMetadataDTO>): List<RecordMetadata> = transact {
+        // lock records in a consistent order to avoid deadlocks between concurrent batches
+        metadata
+            .sortedBy { it.id }
+            .mapNotNull { update ->
+                val id = checkNotNull(update.id) { "Record metadata ID is required for batch updates" }
+                try {
+                    updateMetadataInTransaction(id, update)
+                } catch (ex: HttpConflictException) {
+                    logger.debug("Skipping conflicting metadata update of record {}: {}", id, ex.message)
+                    find(RecordMetadata::class.java, id)
+                } catch (ex: HttpNotFoundException) {
+                    logger.debug("Skipping metadata update of missing record {}", id)
+                    null
+                }
+            }
+    }
+
+    private fun EntityManager.updateMetadataInTransaction(id: Long, metadata: RecordMetadataDTO): RecordMetadata {
         val existingMetadata = find(
             RecordMetadata::class.java, id, LockModeType.PESSIMISTIC_WRITE,
             mapOf("jakarta.persistence.lock.scope" to PessimisticLockScope.EXTENDED),
@@ -364,7 +439,7 @@ class RecordRepositoryImpl(
             message = metadata.message ?: status.defaultStatusMessage
         }.update()
 
-        merge(existingMetadata)
+        return merge(existingMetadata)
     }
 
     override suspend fun delete(record: Record, revision: Int) = transact {
@@ -393,6 +468,19 @@ class RecordRepositoryImpl(
     companion object {
         private val logger = LoggerFactory.getLogger(RecordRepositoryImpl::class.java)
 
+        private const val QUEUED_MESSAGE = "Record is queued for processing"
+
+        /**
+         * Selects records with all associations that are needed to map them to a DTO, except for
+         * the contents collection. That is loaded in batches.
+         */
+        private const val FETCH_RECORDS_QUERY = """
+            SELECT r
+            FROM Record r
+                JOIN FETCH r.metadata m
+                LEFT JOIN FETCH m.logs
+                LEFT JOIN FETCH r.sourceType st"""
+
         private fun allowedStateTransition(from: RecordStatus, to: String): Boolean {
             val toStatus = try {
                 RecordStatus.valueOf(to)
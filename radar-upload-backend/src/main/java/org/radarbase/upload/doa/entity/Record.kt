@@ -28,6 +28,7 @@ import jakarta.persistence.ManyToOne
 import jakarta.persistence.OneToMany
 import jakarta.persistence.OneToOne
 import jakarta.persistence.Table
+import org.hibernate.annotations.BatchSize
 import org.radarbase.upload.doa.AbstractJpaPersistable
 import java.time.LocalDateTime
 
@@ -55,5 +56,6 @@ class Record : AbstractJpaPersistable<Long>() {
     lateinit var sourceType: SourceType
 
     @OneToMany(fetch = FetchType.EAGER, mappedBy = "record", cascade = [CascadeType.ALL])
+    @BatchSize(size = 100)
     var contents: MutableSet<RecordContent>? = null
 }
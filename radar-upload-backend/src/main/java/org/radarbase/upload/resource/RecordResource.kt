@@ -59,6 +59,7 @@ import org.radarbase.upload.api.Page
 import org.radarbase.upload.api.PollDTO
 import org.radarbase.upload.api.RecordDTO
 import org.radarbase.upload.api.RecordMapper
+import org.radarbase.upload.api.RecordMetadataContainerDTO
 import org.radarbase.upload.api.RecordMetadataDTO
 import org.radarbase.upload.doa.RecordRepository
 import org.radarbase.upload.doa.SourceTypeRepository
@@ -94,6 +95,8 @@ class RecordResource(
         @DefaultValue("1") @QueryParam("page") pageNumber: Int,
         @QueryParam("sourceType") sourceType: String?,
         @QueryParam("status") status: String?,
+        @QueryParam("after") after: Long?,
+        @DefaultValue("true") @QueryParam("count") count: Boolean,
         @Suspended asyncResponse: AsyncResponse,
     ) = asyncService.runAsCoroutine(asyncResponse) {
         projectId ?: throw HttpBadRequestException("missing_project", "Required project ID not provided.")
@@ -104,8 +107,8 @@ class RecordResource(
             authService.checkPermission(PROJECT_READ, EntityDetails(project = projectId))
         }
 
-        val queryPage = Page(pageNumber = pageNumber, pageSize = pageSize)
-        val (records, page) = recordRepository.query(queryPage, projectId, userId, status, sourceType)
+        val queryPage = Page(pageNumber = pageNumber, pageSize = pageSize, after = after)
+        val (records, page) = recordRepository.query(queryPage, projectId, userId, status, sourceType, countTotal = count)
 
         recordMapper.fromRecords(records, page)
     }
@@ -258,6 +261,7 @@ class RecordResource(
     fun getContents(
         @PathParam("fileName") fileName: String,
         @PathParam("recordId") recordId: Long,
+        @HeaderParam("Range") rangeHeader: String?,
         @Suspended asyncResponse: AsyncResponse,
     ) = asyncService.runAsCoroutine(asyncResponse) {
         val record = ensureRecord(recordId)
@@ -267,6 +271,14 @@ class RecordResource(
 
         logger.debug("Reading record $recordId file $fileName of size ${recordContent.size}")
 
+        val range = rangeHeader?.let { parseRange(it, recordContent.size) }
+        if (range != null && range.isEmpty()) {
+            return@runAsCoroutine Response
+                .status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header("Content-Range", "bytes */${recordContent.size}")
+                .build()
+        }
+
         val context = coroutineContext
 
         val streamingOutput = StreamingOutput { out ->
@@ -276,6 +288,7 @@ class RecordResource(
                         recordId,
                         record.metadata.revision,
                         recordContent.fileName,
+                        range,
                     ).use {
                         it?.stream?.copyTo(out)
                             ?: throw HttpNotFoundException(
@@ -294,10 +307,19 @@ class RecordResource(
             }
         }
 
-        Response
-            .ok(streamingOutput)
+        val response = if (range == null) {
+            Response.ok(streamingOutput)
+                .header("Content-Length", recordContent.size)
+        } else {
+            Response.status(Response.Status.PARTIAL_CONTENT)
+                .entity(streamingOutput)
+                .header("Content-Length", range.last - range.first + 1)
+                .header("Content-Range", "bytes ${range.first}-${range.last}/${recordContent.size}")
+        }
+
+        response
             .header("Content-Type", recordContent.contentType)
-            .header("Content-Length", recordContent.size)
+            .header("Accept-Ranges", "bytes")
             .header("Last-Modified", recordContent.createdDate)
             .build()
     }
@@ -311,10 +333,18 @@ class RecordResource(
         if (!authService.requestScopedToken().isClientCredentials) {
             throw NotAuthorizedException("Only for internal use")
         }
+        if (pollDTO.taskCount < 1 || pollDTO.taskIndex !in 0 until pollDTO.taskCount) {
+            throw HttpBadRequestException("invalid_task", "Task index must be between 0 and the task count.")
+        }
         val imposedLimit = pollDTO.limit
             .coerceAtLeast(1)
             .coerceAtMost(100)
-        val records = recordRepository.poll(imposedLimit, pollDTO.supportedConverters)
+        val records = recordRepository.poll(
+            imposedLimit,
+            pollDTO.supportedConverters,
+            taskIndex = pollDTO.taskIndex,
+            taskCount = pollDTO.taskCount,
+        )
         recordMapper.fromRecords(records, page = Page(pageSize = imposedLimit))
     }
 
@@ -345,6 +375,39 @@ class RecordResource(
             .also { callbackManager.callback(it) }
     }
 
+    @POST
+    @Path("metadata/batch")
+    fun updateRecordMetaDataBatch(
+        metadataBatch: RecordMetadataContainerDTO,
+        @Context callbackManager: CallbackManager,
+        @Suspended asyncResponse: AsyncResponse,
+    ) = asyncService.runAsCoroutine(asyncResponse) {
+        if (!authService.requestScopedToken().isClientCredentials) {
+            throw NotAuthorizedException("Only for internal use")
+        }
+        val updates = metadataBatch.metadata
+        if (updates.size > MAX_METADATA_BATCH_SIZE) {
+            throw HttpBadRequestException("batch_too_large", "Cannot update more than $MAX_METADATA_BATCH_SIZE records at once.")
+        }
+        if (updates.any { it.id == null }) {
+            throw HttpBadRequestException("field_missing", "Each record metadata update needs a record ID.")
+        }
+
+        val requestedStatus = updates.associate { it.id to it.status }
+        val updatedMetadata = recordRepository.updateMetadata(updates)
+
+        RecordMetadataContainerDTO(
+            metadata = updatedMetadata.map { metadata ->
+                recordMapper.fromMetadata(metadata)
+                    .also {
+                        if (it.status == requestedStatus[it.id]) {
+                            callbackManager.callback(it)
+                        }
+                    }
+            },
+        )
+    }
+
     @GET
     @Path("{recordId}/logs")
     @Produces("text/plain")
@@ -410,5 +473,27 @@ class RecordResource(
         private val logger = LoggerFactory.getLogger(RecordResource::class.java)
 
         private const val LOG_BUFFER_SIZE = 65536
+        private const val MAX_METADATA_BATCH_SIZE = 1000
+
+        private val byteRangeRegex = Regex("""bytes=(\d*)-(\d*)""")
+
+        /**
+         * Parse a single byte range from a Range header for a file of [size] bytes. Ranges that
+         * extend beyond the end of the file are truncated.
+         * @return the range, an empty range if it cannot be satisfied, or null if the header is
+         *     not a valid single byte range and should be ignored, as RFC 9110 requires.
+         */
+        internal fun parseRange(header: String, size: Long): LongRange? {
+            val match = byteRangeRegex.matchEntire(header.trim()) ?: return null
+            val (startString, endString) = match.destructured
+            val start = startString.toLongOrNull()
+            val end = endString.toLongOrNull()
+            return when {
+                start != null && end != null && end < start -> null
+                start != null -> start..(end ?: Long.MAX_VALUE).coerceAtMost(size - 1)
+                end != null -> (size - end).coerceAtLeast(0)..(if (end > 0) size - 1 else -1)
+                else -> null
+            }
+        }
     }
 }
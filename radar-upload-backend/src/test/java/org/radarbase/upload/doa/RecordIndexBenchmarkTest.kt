@@ -0,0 +1,189 @@
+package org.radarbase.upload.doa
+
+import jakarta.persistence.EntityManagerFactory
+import org.glassfish.jersey.server.monitoring.ApplicationEvent
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.containsString
+import org.hamcrest.Matchers.not
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.radarbase.jersey.hibernate.DatabaseInitialization
+import org.radarbase.jersey.hibernate.RadarEntityManagerFactoryFactory
+import org.radarbase.jersey.hibernate.config.DatabaseConfig
+import org.radarbase.upload.doa.entity.Record
+import org.radarbase.upload.doa.entity.RecordContent
+import org.radarbase.upload.doa.entity.RecordLogs
+import org.radarbase.upload.doa.entity.RecordMetadata
+import org.radarbase.upload.doa.entity.SourceType
+import org.radarbase.upload.mock.MockAsyncCoroutineService
+import org.slf4j.LoggerFactory
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.Timestamp
+import java.time.Instant
+import kotlin.reflect.jvm.jvmName
+
+/**
+ * Compares query plans and timings of the poll, list and content queries with and without the
+ * indexes of the record_indexes changelog. It fills an in-memory HSQLDB database with
+ * synthetic records, so it only runs when environment variable UPLOAD_BENCHMARK is set to
+ * true. The number of records is set with UPLOAD_BENCHMARK_ROWS.
+ */
+@EnabledIfEnvironmentVariable(named = "UPLOAD_BENCHMARK", matches = "true")
+internal class RecordIndexBenchmarkTest {
+    private lateinit var doaEMFFactory: RadarEntityManagerFactoryFactory
+    private lateinit var doaEMF: EntityManagerFactory
+    private lateinit var connection: Connection
+
+    @BeforeEach
+    fun setUp() {
+        val dbConfig = DatabaseConfig(
+            managedClasses = listOf(
+                Record::class.jvmName,
+                RecordMetadata::class.jvmName,
+                RecordLogs::class.jvmName,
+                RecordContent::class.jvmName,
+                SourceType::class.jvmName,
+            ),
+            url = DATABASE_URL,
+            dialect = "org.hibernate.dialect.HSQLDialect",
+            driver = "org.hsqldb.jdbc.JDBCDriver",
+        )
+        doaEMFFactory = RadarEntityManagerFactoryFactory(dbConfig)
+        doaEMF = doaEMFFactory.get()
+        val eventStart = mock<ApplicationEvent> {
+            on(ApplicationEvent::getType) doReturn ApplicationEvent.Type.INITIALIZATION_APP_FINISHED
+        }
+        DatabaseInitialization({ doaEMF }, dbConfig, MockAsyncCoroutineService()).onEvent(eventStart)
+        connection = DriverManager.getConnection(DATABASE_URL, "SA", "")
+    }
+
+    @AfterEach
+    fun tearDown() {
+        doaEMFFactory.dispose(doaEMF)
+        connection.createStatement().use { it.execute("SHUTDOWN") }
+        connection.close()
+    }
+
+    @Test
+    fun compareIndexedQueries() {
+        val numberOfRecords = System.getenv("UPLOAD_BENCHMARK_ROWS")?.toIntOrNull() ?: 2_000_000
+        insertRecords(numberOfRecords)
+
+        val indexed = QUERIES.associateWith { measure(it) }
+        dropIndexes()
+        val unindexed = QUERIES.associateWith { measure(it) }
+
+        QUERIES.forEach { query ->
+            val (indexedPlan, indexedTime) = indexed.getValue(query)
+            val (unindexedPlan, unindexedTime) = unindexed.getValue(query)
+            logger.info(
+                "Query {}\n  with indexes ({} ms):\n{}\n  without indexes ({} ms):\n{}",
+                query,
+                indexedTime,
+                indexedPlan,
+                unindexedTime,
+                unindexedPlan,
+            )
+        }
+
+        assertThat(indexed.getValue(POLL_QUERY).first, containsString("IDX_RECORD_METADATA_STATUS_MODIFIED"))
+        assertThat(indexed.getValue(LIST_QUERY).first, containsString("IDX_RECORD_PROJECT_USER_ID"))
+        assertThat(indexed.getValue(CONTENT_QUERY).first, containsString("IDX_RECORD_CONTENT_RECORD_FILE"))
+        assertThat(unindexed.getValue(POLL_QUERY).first, not(containsString("IDX_RECORD_METADATA_STATUS_MODIFIED")))
+    }
+
+    private fun insertRecords(numberOfRecords: Int) {
+        val statuses = listOf("SUCCEEDED", "SUCCEEDED", "SUCCEEDED", "FAILED", "PROCESSING", "READY")
+        val start = Instant.parse("2020-01-01T00:00:00Z")
+        connection.autoCommit = false
+        connection.prepareStatement("INSERT INTO record (id, project_id, user_id, source_id) VALUES (?, ?, ?, ?)").use { recordStatement ->
+            connection.prepareStatement("INSERT INTO record_metadata (record_id, revision, status, created_date, modified_date) VALUES (?, 1, ?, ?, ?)").use { metadataStatement ->
+                connection.prepareStatement("INSERT INTO record_content (id, record_id, size, file_name, content_type) VALUES (?, ?, 4, ?, 'text/csv')").use { contentStatement ->
+                    for (id in 1L..numberOfRecords) {
+                        val time = Timestamp.from(start.plusSeconds(id))
+                        recordStatement.setLong(1, id)
+                        recordStatement.setString(2, "project-${id % 50}")
+                        recordStatement.setString(3, "user-${id % 5000}")
+                        recordStatement.setString(4, "source-$id")
+                        recordStatement.addBatch()
+                        metadataStatement.setLong(1, id)
+                        metadataStatement.setString(2, statuses[(id % statuses.size).toInt()])
+                        metadataStatement.setTimestamp(3, time)
+                        metadataStatement.setTimestamp(4, time)
+                        metadataStatement.addBatch()
+                        contentStatement.setLong(1, id)
+                        contentStatement.setLong(2, id)
+                        contentStatement.setString(3, "data-$id.csv")
+                        contentStatement.addBatch()
+                        if (id % BATCH_SIZE == 0L || id == numberOfRecords.toLong()) {
+                            recordStatement.executeBatch()
+                            metadataStatement.executeBatch()
+                            contentStatement.executeBatch()
+                            connection.commit()
+                        }
+                    }
+                }
+            }
+        }
+        connection.autoCommit = true
+    }
+
+    private fun dropIndexes() {
+        connection.createStatement().use { statement ->
+            INDEXES.forEach { statement.execute("DROP INDEX $it") }
+        }
+    }
+
+    /** Query plan and the average time in milliseconds to run [query]. */
+    private fun measure(query: String): Pair<String, Double> {
+        val plan = connection.createStatement().use { statement ->
+            statement.executeQuery("EXPLAIN PLAN FOR $query").use { result ->
+                buildString {
+                    while (result.next()) {
+                        appendLine(result.getString(1))
+                    }
+                }
+            }
+        }
+        repeat(WARMUP_ITERATIONS) { runQuery(query) }
+        val startTime = System.nanoTime()
+        repeat(ITERATIONS) { runQuery(query) }
+        return Pair(plan, (System.nanoTime() - startTime) / 1_000_000.0 / ITERATIONS)
+    }
+
+    private fun runQuery(query: String) {
+        connection.createStatement().use { statement ->
+            statement.executeQuery(query).use { result ->
+                while (result.next()) {
+                    result.getLong(1)
+                }
+            }
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(RecordIndexBenchmarkTest::class.java)
+
+        private const val DATABASE_URL = "jdbc:hsqldb:mem:benchmark;DB_CLOSE_DELAY=-1"
+        private const val BATCH_SIZE = 10_000L
+        private const val WARMUP_ITERATIONS = 3
+        private const val ITERATIONS = 10
+
+        private const val POLL_QUERY = "SELECT m.record_id FROM record_metadata m WHERE m.status = 'READY' ORDER BY m.modified_date LIMIT 100"
+        private const val LIST_QUERY = "SELECT r.id FROM record r WHERE r.project_id = 'project-7' AND r.user_id = 'user-7' ORDER BY r.id DESC LIMIT 20"
+        private const val CONTENT_QUERY = "SELECT rc.id FROM record_content rc WHERE rc.record_id = 12345 AND rc.file_name = 'data-12345.csv'"
+        private val QUERIES = listOf(POLL_QUERY, LIST_QUERY, CONTENT_QUERY)
+
+        private val INDEXES = listOf(
+            "idx_record_metadata_status_modified",
+            "idx_record_project_id",
+            "idx_record_project_user_id",
+            "idx_record_content_record_file",
+        )
+    }
+}
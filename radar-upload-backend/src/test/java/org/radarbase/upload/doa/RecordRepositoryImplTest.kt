@@ -33,6 +33,7 @@ import org.hamcrest.Matchers.lessThanOrEqualTo
 import org.hamcrest.Matchers.notNullValue
 import org.hamcrest.Matchers.nullValue
 import org.hamcrest.Matchers.sameInstance
+import org.hibernate.SessionFactory
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
@@ -45,6 +46,7 @@ import org.radarbase.jersey.hibernate.DatabaseInitialization
 import org.radarbase.jersey.hibernate.RadarEntityManagerFactoryFactory
 import org.radarbase.jersey.hibernate.config.DatabaseConfig
 import org.radarbase.upload.api.ContentsDTO
+import org.radarbase.upload.api.Page
 import org.radarbase.upload.api.RecordMetadataDTO
 import org.radarbase.upload.doa.entity.Record
 import org.radarbase.upload.doa.entity.RecordContent
@@ -86,6 +88,7 @@ internal class RecordRepositoryImplTest {
             url = "jdbc:hsqldb:mem:test2;DB_CLOSE_DELAY=-1",
             dialect = "org.hibernate.dialect.HSQLDialect",
             driver = "org.hsqldb.jdbc.JDBCDriver",
+            properties = mapOf("hibernate.generate_statistics" to "true"),
         )
         doaEMFFactory = RadarEntityManagerFactoryFactory(dbConfig)
         doaEMF = doaEMFFactory.get()
@@ -133,10 +136,122 @@ internal class RecordRepositoryImplTest {
         assertThat(metadata.revision, equalTo(2))
     }
 
-    private fun doCreate() = runBlocking {
+    @Test
+    fun updateMetadataBatch() = runBlocking {
+        val first = doCreate()
+        val second = doCreate()
+
+        val result = repository.updateMetadata(
+            listOf(
+                RecordMetadataDTO(id = second.id, revision = 1, status = "READY"),
+                // conflicting revision
+                RecordMetadataDTO(id = first.id, revision = 5, status = "READY"),
+                // missing record
+                RecordMetadataDTO(id = -1L, revision = 1, status = "READY"),
+            ),
+        )
+
+        assertThat(result, hasSize(2))
+        val firstMetadata = result.first { it.id == first.id }
+        assertThat(firstMetadata.status, sameInstance(RecordStatus.INCOMPLETE))
+        assertThat(firstMetadata.revision, equalTo(1))
+        val secondMetadata = result.first { it.id == second.id }
+        assertThat(secondMetadata.status, sameInstance(RecordStatus.READY))
+        assertThat(secondMetadata.revision, equalTo(2))
+    }
+
+    @Test
+    fun pollByTask() = runBlocking {
+        val records = List(4) { doCreate() }
+        repository.updateMetadata(
+            records.map { RecordMetadataDTO(id = it.id, revision = 1, status = "READY") },
+        )
+
+        // ignore records of other tests
+        val ids = records.mapTo(HashSet()) { it.id }
+        val firstTask = repository.poll(100, emptySet(), taskIndex = 0, taskCount = 2).filter { it.id in ids }
+        val secondTask = repository.poll(100, emptySet(), taskIndex = 1, taskCount = 2).filter { it.id in ids }
+
+        assertThat(firstTask, hasSize(2))
+        assertThat(secondTask, hasSize(2))
+        firstTask.forEach { assertThat(it.id!! % 2, equalTo(0L)) }
+        secondTask.forEach { assertThat(it.id!! % 2, equalTo(1L)) }
+        (firstTask + secondTask).forEach { assertThat(it.metadata.status, sameInstance(RecordStatus.QUEUED)) }
+    }
+
+    @Test
+    fun pollUpdatesMetadata() = runBlocking {
+        val record = doCreate()
+        repository.updateMetadata(listOf(RecordMetadataDTO(id = record.id, revision = 1, status = "READY")))
+
+        val polled = repository.poll(100, emptySet()).filter { it.id == record.id }
+        assertThat(polled, hasSize(1))
+        assertThat(polled[0].metadata.revision, equalTo(3))
+        assertThat(polled[0].metadata.status, sameInstance(RecordStatus.QUEUED))
+
+        val stored = repository.readMetadata(record.id!!)
+        assertThat(stored, notNullValue())
+        assertThat(stored!!.revision, equalTo(3))
+        assertThat(stored.status, sameInstance(RecordStatus.QUEUED))
+        assertThat(stored.message, equalTo("Record is queued for processing"))
+
+        assertThat(repository.poll(100, emptySet()).filter { it.id == record.id }, hasSize(0))
+    }
+
+    @Test
+    fun queryAfter() = runBlocking {
+        val ids = List(5) { doCreate(projectId = "keyset").id!! }.sortedDescending()
+
+        val (firstPage, firstPageInfo) = repository.query(Page(pageSize = 2), "keyset", null, null, null)
+        assertThat(firstPage.map { it.id }, equalTo(ids.subList(0, 2)))
+        assertThat(firstPageInfo.totalElements, equalTo(5L))
+
+        val (secondPage, secondPageInfo) = repository.query(
+            Page(pageSize = 2, after = firstPage.last().id),
+            "keyset",
+            null,
+            null,
+            null,
+            countTotal = false,
+        )
+        assertThat(secondPage.map { it.id }, equalTo(ids.subList(2, 4)))
+        assertThat(secondPageInfo.totalElements, nullValue())
+    }
+
+    @Test
+    fun queryStatementCount() = runBlocking {
+        val records = List(10) { doCreate(projectId = "statements") }
+        repository.updateMetadata(records.map { RecordMetadataDTO(id = it.id, revision = 1, status = "READY") })
+        entityManager.clear()
+        val statistics = doaEMF.unwrap(SessionFactory::class.java).statistics
+        statistics.clear()
+
+        val (queried, _) = repository.query(Page(pageSize = 20), "statements", null, null, null)
+        assertThat(queried, hasSize(10))
+        queried.forEach { record ->
+            assertThat(record.metadata.logs, nullValue())
+            assertThat(record.contents, hasSize(1))
+        }
+        // records, count and one batch of contents, regardless of the number of records
+        assertThat(statistics.prepareStatementCount, lessThanOrEqualTo(3L))
+
+        entityManager.clear()
+        statistics.clear()
+        val ids = records.mapTo(HashSet()) { it.id }
+        val polled = repository.poll(100, emptySet()).filter { it.id in ids }
+        assertThat(polled, hasSize(10))
+        polled.forEach { record ->
+            assertThat(record.metadata.status, sameInstance(RecordStatus.QUEUED))
+            assertThat(record.contents, hasSize(1))
+        }
+        // record IDs, status update, records and one batch of contents
+        assertThat(statistics.prepareStatementCount, lessThanOrEqualTo(4L))
+    }
+
+    private fun doCreate(projectId: String = "p") = runBlocking {
         repository.create(
             Record().apply {
-                projectId = "p"
+                this.projectId = projectId
                 userId = "u"
                 sourceId = "s"
                 time = LocalDateTime.parse("2019-01-01T00:00:00")
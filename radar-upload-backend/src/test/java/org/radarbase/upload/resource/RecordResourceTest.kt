@@ -174,4 +174,79 @@ internal class RecordResourceTest : JerseyTest() {
                 assertThat(response.statusInfo.family, `is`(Response.Status.Family.SUCCESSFUL))
             }
     }
+
+    @Test
+    fun getContentsRange() {
+        authQueue.add(Pair(auth, true))
+        val record = target("records")
+            .request()
+            .header("Authorization", "Bearer abcdef")
+            .post(
+                Entity.json(
+                    RecordDTO(
+                        id = null,
+                        data = RecordDataDTO(
+                            projectId = "a",
+                            userId = "u1",
+                            sourceId = "s1",
+                        ),
+                        sourceType = "type1",
+                        metadata = null,
+                    ),
+                ),
+            ).use { response ->
+                response.readEntity(RecordDTO::class.java)
+            }
+
+        authQueue.add(Pair(auth, true))
+        target("records/${record.id}/contents/test.txt")
+            .request()
+            .header("Authorization", "Bearer abcdef")
+            .put(Entity.text("something")).use { response ->
+                assertThat(response.statusInfo.family, `is`(Response.Status.Family.SUCCESSFUL))
+            }
+
+        fun getContents(range: String): Response {
+            authQueue.add(Pair(auth, true))
+            return target("records/${record.id}/contents/test.txt")
+                .request()
+                .header("Authorization", "Bearer abcdef")
+                .header("Range", range)
+                .get()
+        }
+
+        getContents("bytes=2-4").use { response ->
+            assertThat(response.status, equalTo(Response.Status.PARTIAL_CONTENT.statusCode))
+            assertThat(response.getHeaderString("Content-Range"), equalTo("bytes 2-4/9"))
+            assertThat(response.getHeaderString("Accept-Ranges"), equalTo("bytes"))
+            assertThat(response.readEntity(String::class.java), equalTo("met"))
+        }
+        getContents("bytes=-3").use { response ->
+            assertThat(response.status, equalTo(Response.Status.PARTIAL_CONTENT.statusCode))
+            assertThat(response.readEntity(String::class.java), equalTo("ing"))
+        }
+        getContents("bytes=20-").use { response ->
+            assertThat(response.status, equalTo(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE.statusCode))
+            assertThat(response.getHeaderString("Content-Range"), equalTo("bytes */9"))
+        }
+        // invalid ranges are ignored
+        getContents("bytes=5-2").use { response ->
+            assertThat(response.status, equalTo(Response.Status.OK.statusCode))
+            assertThat(response.readEntity(String::class.java), equalTo("something"))
+        }
+    }
+
+    @Test
+    fun parseRange() {
+        assertThat(RecordResource.parseRange("bytes=0-99", 50), equalTo(0L..49L))
+        assertThat(RecordResource.parseRange("bytes=10-", 50), equalTo(10L..49L))
+        assertThat(RecordResource.parseRange("bytes=-10", 50), equalTo(40L..49L))
+        assertThat(RecordResource.parseRange("bytes=-100", 50), equalTo(0L..49L))
+        assertThat(RecordResource.parseRange("bytes=50-", 50)?.isEmpty(), `is`(true))
+        assertThat(RecordResource.parseRange("bytes=-0", 50)?.isEmpty(), `is`(true))
+        assertThat(RecordResource.parseRange("bytes=5-2", 50), nullValue())
+        assertThat(RecordResource.parseRange("bytes=0-1,3-4", 50), nullValue())
+        assertThat(RecordResource.parseRange("items=0-1", 50), nullValue())
+        assertThat(RecordResource.parseRange("bytes=-", 50), nullValue())
+    }
 }